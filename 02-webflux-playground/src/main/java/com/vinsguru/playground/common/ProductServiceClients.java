@@ -0,0 +1,53 @@
+package com.vinsguru.playground.common;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.http.client.reactive.ClientHttpRequest;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.http.client.HttpClientRequest;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.function.Consumer;
+
+/*
+    One WebClient (and so one connection pool) for all the calls to the products service.
+        - LIFO: the most recently used i.e warm connection is handed out first
+        - the pool (reactor.netty.connection.provider.*) and the client (reactor.netty.http.client.*) publish metrics
+        - the Boot builder adds the http.client.requests latency metric
+    Not a component: the sections are scanned one at a time, each one declares its own beans with these.
+ */
+public final class ProductServiceClients {
+
+    private ProductServiceClients() {
+    }
+
+    public static ConnectionProvider connectionProvider(int maxConnections, Duration maxIdleTime) {
+        return ConnectionProvider.builder("product-service")
+                                 .lifo()
+                                 .maxConnections(maxConnections)
+                                 .pendingAcquireMaxCount(maxConnections * 5)
+                                 .maxIdleTime(maxIdleTime)
+                                 .evictInBackground(maxIdleTime)
+                                 .metrics(true)
+                                 .build();
+    }
+
+    public static WebClient webClient(WebClient.Builder builder, ConnectionProvider connectionProvider, String baseUrl, Duration connectTimeout) {
+        var httpClient = HttpClient.create(connectionProvider)
+                                   .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                                   .keepAlive(true)
+                                   .metrics(true, uri -> uri); // the uris are fixed, so no cardinality issue
+        return builder.clone()
+                      .baseUrl(baseUrl)
+                      .clientConnector(new ReactorClientHttpConnector(httpClient))
+                      .build();
+    }
+
+    // per route timeout, the max time between 2 reads of the response
+    public static Consumer<ClientHttpRequest> responseTimeout(Duration timeout) {
+        return request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(timeout);
+    }
+
+}
@@ -0,0 +1,15 @@
+package com.vinsguru.playground.sec01;
+
+/*
+    Where the blocking RestClient calls of the TraditionalWebController run.
+        CALLER          - on the thread handling the request i.e the Netty event loop (blocks it!)
+        BOUNDED_ELASTIC - on Reactor's bounded elastic scheduler (a capped pool of platform threads)
+        VIRTUAL_THREAD  - on a new virtual thread per call
+ */
+public enum ExecutionMode {
+
+    CALLER,
+    BOUNDED_ELASTIC,
+    VIRTUAL_THREAD
+
+}
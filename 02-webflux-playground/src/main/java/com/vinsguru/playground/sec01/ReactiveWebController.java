@@ -1,7 +1,9 @@
 package com.vinsguru.playground.sec01;
 
+import com.vinsguru.playground.common.ProductServiceClients;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RequestMapping;
@@ -9,14 +11,25 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 
+import java.time.Duration;
+
 @RestController
 @RequestMapping("reactive")
 public class ReactiveWebController {
 
     private static final Logger log = LoggerFactory.getLogger(ReactiveWebController.class);
-    private final WebClient webClient = WebClient.builder()
-                                                 .baseUrl("http://localhost:7070")
-                                                 .build();
+    private final WebClient webClient;
+    private final Duration productsTimeout;
+    private final Duration productsStreamTimeout;
+
+    // the shared, pooled WebClient of WebClientConfig - instead of a WebClient (and a connection pool) per controller
+    public ReactiveWebController(WebClient productServiceClient,
+                                 @Value("${product.service.client.response-timeout.products:5s}") Duration productsTimeout,
+                                 @Value("${product.service.client.response-timeout.products-stream:5s}") Duration productsStreamTimeout) {
+        this.webClient = productServiceClient;
+        this.productsTimeout = productsTimeout;
+        this.productsStreamTimeout = productsStreamTimeout;
+    }
 
 
 
@@ -24,6 +37,7 @@ public class ReactiveWebController {
     public Flux<Product> getProducts() {
         return this.webClient.get()
                              .uri("/demo01/products")
+                             .httpRequest(ProductServiceClients.responseTimeout(this.productsTimeout))
                              .retrieve()
                              .bodyToFlux(Product.class)
                              .doOnNext(p -> log.info("received: {}", p));
@@ -37,8 +51,10 @@ public class ReactiveWebController {
          */
         return this.webClient.get()
                              .uri("/demo01/products")
+                             .httpRequest(ProductServiceClients.responseTimeout(this.productsStreamTimeout))
                              .retrieve()
                              .bodyToFlux(Product.class)
+                             .doOnCancel(() -> log.info("Request Cancelled by the Client"))
                              .doOnNext(p -> log.info("received: {}", p))
                              .onErrorComplete();
     }
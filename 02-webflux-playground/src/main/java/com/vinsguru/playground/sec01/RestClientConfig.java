@@ -2,19 +2,34 @@ package com.vinsguru.playground.sec01;
 
 
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.client.JdkClientHttpRequestFactory;
 import org.springframework.web.client.RestClient;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.Executors;
 
 @Configuration
 public class RestClientConfig {
 
     @Bean
-    public RestClient restClient() {
+    public RestClient restClient(@Value("${product.service.url}") String baseUrl) {
         return RestClient.builder()
                 .requestFactory(new JdkClientHttpRequestFactory())
-                .baseUrl("http://localhost:7070")
+                .baseUrl(baseUrl)
                 .build();
     }
-}
\ No newline at end of file
+
+    // immediate() keeps the old behaviour i.e the call blocks the request thread
+    @Bean(destroyMethod = "dispose")
+    public Scheduler blockingScheduler(@Value("${sec01.blocking.execution-mode:caller}") ExecutionMode mode) {
+        return switch (mode) {
+            case CALLER -> Schedulers.immediate();
+            case BOUNDED_ELASTIC -> Schedulers.boundedElastic();
+            case VIRTUAL_THREAD -> Schedulers.fromExecutorService(Executors.newVirtualThreadPerTaskExecutor(), "virtual-thread");
+        };
+    }
+}
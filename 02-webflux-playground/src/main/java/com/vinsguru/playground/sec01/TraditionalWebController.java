@@ -9,8 +9,11 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.client.RestClient;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
 
 import java.util.List;
+import java.util.function.Function;
 
 @RestController
 @RequestMapping("traditional")
@@ -24,31 +27,37 @@ public class TraditionalWebController {
                                                     .baseUrl("http://localhost:7070")
                                                     .build();*/
     private final RestClient restClient;
+    private final Scheduler blockingScheduler;
 
-    public TraditionalWebController(RestClient restClient) {
+    public TraditionalWebController(RestClient restClient, Scheduler blockingScheduler) {
         this.restClient = restClient;
+        this.blockingScheduler = blockingScheduler;
     }
 
+    /*
+        The RestClient call is still blocking. It is only deferred until subscription and moved to the
+        scheduler selected via sec01.blocking.execution-mode, so it does not have to block the event loop.
+     */
     @GetMapping("products")
-    public List<Product> getProducts() {
-        var list = this.restClient.get()
-                                  .uri("/demo01/products")
-                                  .retrieve()
-                                  .body(new ParameterizedTypeReference<List<Product>>() {
-                                  });
-        log.info("received response: {}", list);
-        return list;
+    public Mono<List<Product>> getProducts() {
+        return Mono.fromCallable(this::fetchProducts)
+                   .subscribeOn(this.blockingScheduler);
     }
 
     @GetMapping("products2")
     public Flux<Product> getProducts2() {
-        var listProducts = this.restClient.get()
+        return this.getProducts()
+                   .flatMapIterable(Function.identity());
+    }
+
+    private List<Product> fetchProducts() {
+        var list = this.restClient.get()
                                   .uri("/demo01/products")
                                   .retrieve()
                                   .body(new ParameterizedTypeReference<List<Product>>() {
                                   });
-        log.info("received response: {}", listProducts);
-        return Flux.fromIterable(listProducts);
+        log.info("received response: {}", list);
+        return list;
     }
 
 }
@@ -0,0 +1,30 @@
+package com.vinsguru.playground.sec03.config;
+
+import com.vinsguru.playground.common.ProductServiceClients;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+
+// the shared products service client, see ProductServiceClients
+@Configuration
+public class WebClientConfig {
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider productServiceConnectionProvider(@Value("${product.service.client.max-connections:100}") int maxConnections,
+                                                               @Value("${product.service.client.max-idle-time:30s}") Duration maxIdleTime) {
+        return ProductServiceClients.connectionProvider(maxConnections, maxIdleTime);
+    }
+
+    @Bean
+    public WebClient productServiceClient(WebClient.Builder builder,
+                                          ConnectionProvider productServiceConnectionProvider,
+                                          @Value("${product.service.url}") String baseUrl,
+                                          @Value("${product.service.client.connect-timeout:2s}") Duration connectTimeout) {
+        return ProductServiceClients.webClient(builder, productServiceConnectionProvider, baseUrl, connectTimeout);
+    }
+
+}
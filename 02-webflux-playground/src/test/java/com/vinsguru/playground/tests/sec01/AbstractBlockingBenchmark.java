@@ -0,0 +1,82 @@
+package com.vinsguru.playground.tests.sec01;
+
+import com.vinsguru.playground.sec01.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+
+/*
+    Side by side comparison of the blocking (RestClient) and the non-blocking (WebClient) endpoints of sec01.
+    The subclasses start the app with a different sec01.blocking.execution-mode.
+    The external service should be up and running on port 7070!
+    It is for demo purposes - look at the logged throughput, not at the assertions.
+ */
+abstract class AbstractBlockingBenchmark {
+
+    private static final Logger log = LoggerFactory.getLogger(AbstractBlockingBenchmark.class);
+    private static final int CONCURRENT_REQUESTS = 100;
+
+    @LocalServerPort
+    private int port;
+
+    @Value("${sec01.blocking.execution-mode}")
+    private String mode;
+
+    private WebClient client;
+
+    @BeforeEach
+    public void setClient() {
+        // enough connections, so that the client is not the bottleneck
+        var provider = ConnectionProvider.builder("benchmark")
+                                         .maxConnections(CONCURRENT_REQUESTS)
+                                         .build();
+        this.client = WebClient.builder()
+                               .baseUrl("http://localhost:" + this.port)
+                               .clientConnector(new ReactorClientHttpConnector(HttpClient.create(provider)))
+                               .build();
+    }
+
+    @Test
+    public void traditionalProducts() {
+        this.benchmark("/traditional/products");
+    }
+
+    @Test
+    public void traditionalProducts2() {
+        this.benchmark("/traditional/products2");
+    }
+
+    @Test
+    public void reactiveProducts() {
+        this.benchmark("/reactive/products");
+    }
+
+    private void benchmark(String path) {
+        var start = System.nanoTime();
+        Flux.range(1, CONCURRENT_REQUESTS)
+            .flatMap(i -> this.client.get()
+                                     .uri(path)
+                                     .retrieve()
+                                     .bodyToFlux(Product.class)
+                                     .then(), CONCURRENT_REQUESTS)
+            .as(StepVerifier::create)
+            .expectComplete()
+            .verify(Duration.ofMinutes(5));
+        var totalTimeElapsed = Duration.ofNanos(System.nanoTime() - start).toMillis();
+        var throughput = (1.0 * CONCURRENT_REQUESTS / totalTimeElapsed) * 1000;
+        log.info("mode: {} - path: {} - {} requests took: {} ms, throughput: {} / sec",
+                 this.mode, path, CONCURRENT_REQUESTS, totalTimeElapsed, throughput);
+    }
+
+}
@@ -0,0 +1,10 @@
+package com.vinsguru.playground.tests.sec01;
+
+import org.springframework.boot.test.context.SpringBootTest;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "sec=sec01",
+        "sec01.blocking.execution-mode=bounded-elastic"
+})
+public class BoundedElasticModeBenchmarkTest extends AbstractBlockingBenchmark {
+}
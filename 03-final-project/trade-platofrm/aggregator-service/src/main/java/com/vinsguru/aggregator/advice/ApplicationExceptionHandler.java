@@ -1,7 +1,10 @@
 package com.vinsguru.aggregator.advice;
 
 import com.vinsguru.aggregator.exceptions.CustomerNotFoundException;
+import com.vinsguru.aggregator.exceptions.IdempotencyKeyReusedException;
+import com.vinsguru.aggregator.exceptions.InvalidRequestException;
 import com.vinsguru.aggregator.exceptions.InvalidTradeRequestException;
+import com.vinsguru.aggregator.exceptions.ServiceUnavailableException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -29,6 +32,30 @@ public class ApplicationExceptionHandler {
         });
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ProblemDetail handleException(InvalidRequestException ex) {
+        return build(HttpStatus.BAD_REQUEST, ex, problem -> {
+            problem.setType(URI.create("http://example.com/problems/invalid-request"));
+            problem.setTitle("Invalid Request");
+        });
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ProblemDetail handleException(IdempotencyKeyReusedException ex) {
+        return build(HttpStatus.UNPROCESSABLE_ENTITY, ex, problem -> {
+            problem.setType(URI.create("http://example.com/problems/idempotency-key-reused"));
+            problem.setTitle("Idempotency Key Reused");
+        });
+    }
+
+    @ExceptionHandler(ServiceUnavailableException.class)
+    public ProblemDetail handleException(ServiceUnavailableException ex) {
+        return build(HttpStatus.SERVICE_UNAVAILABLE, ex, problem -> {
+            problem.setType(URI.create("http://example.com/problems/service-unavailable"));
+            problem.setTitle("Service Unavailable");
+        });
+    }
+
     private ProblemDetail build(HttpStatus status, Exception ex, Consumer<ProblemDetail> consumer) {
         var problem = ProblemDetail.forStatusAndDetail(status, ex.getMessage());
         consumer.accept(problem);
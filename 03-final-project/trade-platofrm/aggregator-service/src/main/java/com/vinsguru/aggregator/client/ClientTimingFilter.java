@@ -0,0 +1,75 @@
+package com.vinsguru.aggregator.client;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.http.MediaType;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/*
+    Splits the time of a downstream call into
+    - client.response: request sent (incl. connection acquire) => response headers received
+    - client.body: response headers => response body fully received (the decoding of a Mono happens after)
+    tagged with client, method, uri (path template, without the base url) and status.
+    client.body is not recorded for streaming responses (ndjson, event-stream): their body lasts as long as the stream.
+ */
+public class ClientTimingFilter implements ExchangeFilterFunction {
+
+    private static final String URI_TEMPLATE_ATTRIBUTE = WebClient.class.getName() + ".uriTemplate";
+    private static final Pattern BASE_URL = Pattern.compile("^https?://[^/]+");
+    private static final List<MediaType> STREAMING_MEDIA_TYPES = List.of(MediaType.APPLICATION_NDJSON, MediaType.TEXT_EVENT_STREAM);
+
+    private final String client;
+    private final MeterRegistry meterRegistry;
+
+    public ClientTimingFilter(String client, MeterRegistry meterRegistry) {
+        this.client = client;
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Override
+    public Mono<ClientResponse> filter(ClientRequest request, ExchangeFunction next) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return next.exchange(request)
+                       .doOnError(ex -> this.record("client.response", request, "IO_ERROR", start))
+                       .map(response -> {
+                           var status = String.valueOf(response.statusCode().value());
+                           var headersReceived = this.record("client.response", request, status, start);
+                           if (isStreaming(response)) {
+                               return response;
+                           }
+                           return response.mutate()
+                                          .body(body -> body.doOnComplete(() -> this.record("client.body", request, status, headersReceived)))
+                                          .build();
+                       });
+        });
+    }
+
+    private static boolean isStreaming(ClientResponse response) {
+        return response.headers()
+                       .contentType()
+                       .filter(type -> STREAMING_MEDIA_TYPES.stream().anyMatch(type::isCompatibleWith))
+                       .isPresent();
+    }
+
+    // returns the end time
+    private long record(String name, ClientRequest request, String status, long start) {
+        var end = System.nanoTime();
+        var uri = request.attribute(URI_TEMPLATE_ATTRIBUTE)
+                         .map(template -> BASE_URL.matcher(String.valueOf(template)).replaceFirst(""))
+                         .orElse(request.url().getPath());
+        var tags = Tags.of("client", this.client, "method", request.method().name(), "uri", uri, "status", status);
+        this.meterRegistry.timer(name, tags).record(end - start, TimeUnit.NANOSECONDS);
+        return end;
+    }
+
+}
@@ -6,46 +6,94 @@ import com.vinsguru.aggregator.dto.StockTradeResponse;
 import com.vinsguru.aggregator.exceptions.ApplicationExceptions;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
 import org.springframework.http.ProblemDetail;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
 import org.springframework.web.reactive.function.client.WebClientResponseException.NotFound;
 import org.springframework.web.reactive.function.client.WebClientResponseException.BadRequest;
+import org.springframework.web.reactive.function.client.WebClientResponseException.UnprocessableEntity;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
 import java.util.Objects;
 
 public class CustomerServiceClient {
 
     private static final Logger log = LoggerFactory.getLogger(CustomerServiceClient.class);
+    private static final String IDEMPOTENCY_KEY = "Idempotency-Key";
     private final WebClient client;
+    private final IdempotentReadPolicy readPolicy;
+    private final DownstreamGuard guard;
 
     public CustomerServiceClient(WebClient client) {
+        this(client, IdempotentReadPolicy.none(), DownstreamGuard.none());
+    }
+
+    // trades are not idempotent without a key. so only the reads use the read policy. every call goes through the guard
+    public CustomerServiceClient(WebClient client, IdempotentReadPolicy readPolicy, DownstreamGuard guard) {
         this.client = client;
+        this.readPolicy = readPolicy;
+        this.guard = guard;
     }
 
     public Mono<CustomerInformation> getCustomerInformation(Integer customerId) {
+        return this.readPolicy.execute(() -> this.guard.protect(this.requestCustomerInformation(customerId)))
+                              .onErrorResume(NotFound.class, ex -> ApplicationExceptions.customerNotFound(customerId));
+    }
+
+    // not hedged / retried: the response is a stream
+    public Flux<CustomerInformation> getCustomerInformation(List<Integer> customerIds) {
+        return this.guard.protect(
+                this.client.post()
+                           .uri("/customers/batch")
+                           .accept(MediaType.APPLICATION_NDJSON)
+                           .bodyValue(customerIds)
+                           .retrieve()
+                           .bodyToFlux(CustomerInformation.class)
+        );
+    }
+
+    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest request) {
+        return this.trade(customerId, request, null);
+    }
+
+    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest request, String idempotencyKey) {
+        return this.guard.protect(this.requestTrade(customerId, request, idempotencyKey))
+                         .onErrorResume(NotFound.class, ex -> ApplicationExceptions.customerNotFound(customerId))
+                         .onErrorResume(BadRequest.class, this::handleException)
+                         .onErrorResume(UnprocessableEntity.class, ex -> ApplicationExceptions.idempotencyKeyReused(detail(ex)));
+    }
+
+    private Mono<CustomerInformation> requestCustomerInformation(Integer customerId) {
         return this.client.get()
                           .uri("/customers/{customerId}", customerId)
                           .retrieve()
-                          .bodyToMono(CustomerInformation.class)
-                          .onErrorResume(NotFound.class, ex -> ApplicationExceptions.customerNotFound(customerId));
+                          .bodyToMono(CustomerInformation.class);
     }
 
-    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest request) {
+    private Mono<StockTradeResponse> requestTrade(Integer customerId, StockTradeRequest request, String idempotencyKey) {
         return this.client.post()
                           .uri("/customers/{customerId}/trade", customerId)
+                          .headers(h -> {
+                              if (Objects.nonNull(idempotencyKey)) {
+                                  h.set(IDEMPOTENCY_KEY, idempotencyKey);
+                              }
+                          })
                           .bodyValue(request)
                           .retrieve()
-                          .bodyToMono(StockTradeResponse.class)
-                          .onErrorResume(NotFound.class, ex -> ApplicationExceptions.customerNotFound(customerId))
-                          .onErrorResume(BadRequest.class, this::handleException);
+                          .bodyToMono(StockTradeResponse.class);
     }
 
     private <T> Mono<T> handleException(BadRequest exception){
+        return ApplicationExceptions.invalidTradeRequest(detail(exception));
+    }
+
+    private static String detail(WebClientResponseException exception){
         var pd = exception.getResponseBodyAs(ProblemDetail.class);
-        var message = Objects.nonNull(pd) ? pd.getDetail() : exception.getMessage();
         log.error("customer service problem detail: {}", pd);
-        return ApplicationExceptions.invalidTradeRequest(message);
+        return Objects.nonNull(pd) ? pd.getDetail() : exception.getMessage();
     }
 
 }
@@ -0,0 +1,59 @@
+package com.vinsguru.aggregator.client;
+
+import com.vinsguru.aggregator.exceptions.ServiceUnavailableException;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+/*
+    Circuit breaker + bulkhead (max concurrent calls) of a downstream service.
+    A call is rejected right away with ServiceUnavailableException when the circuit is open
+    or when the bulkhead is full, instead of waiting for a connection / response.
+ */
+public class DownstreamGuard {
+
+    private final String name;
+    private final CircuitBreaker circuitBreaker;
+    private final Bulkhead bulkhead;
+
+    public DownstreamGuard(String name, CircuitBreaker circuitBreaker, Bulkhead bulkhead) {
+        this.name = name;
+        this.circuitBreaker = circuitBreaker;
+        this.bulkhead = bulkhead;
+    }
+
+    // no circuit breaker, no bulkhead
+    public static DownstreamGuard none() {
+        return new DownstreamGuard("none", null, null);
+    }
+
+    public <T> Mono<T> protect(Mono<T> call) {
+        if (Objects.isNull(this.circuitBreaker)) {
+            return call;
+        }
+        return call.transformDeferred(BulkheadOperator.of(this.bulkhead))
+                   .transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker))
+                   .onErrorMap(this::isRejection, ex -> new ServiceUnavailableException(this.name));
+    }
+
+    public <T> Flux<T> protect(Flux<T> call) {
+        if (Objects.isNull(this.circuitBreaker)) {
+            return call;
+        }
+        return call.transformDeferred(BulkheadOperator.of(this.bulkhead))
+                   .transformDeferred(CircuitBreakerOperator.of(this.circuitBreaker))
+                   .onErrorMap(this::isRejection, ex -> new ServiceUnavailableException(this.name));
+    }
+
+    private boolean isRejection(Throwable ex) {
+        return ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException;
+    }
+
+}
@@ -0,0 +1,168 @@
+package com.vinsguru.aggregator.client;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+import reactor.util.retry.Retry;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Supplier;
+
+/*
+    Hedging + retries for idempotent reads of a downstream service.
+
+    Hedging: when the response takes longer than the p95 of the recent response times (within min / max delay),
+    a 2nd request is sent. The first response wins and the other request is cancelled.
+    Every completed request (success or error) is a response time sample. A primary request cancelled by a winning
+    hedge is sampled too, with the time it had taken so far. Otherwise only the winners count and the p95 drifts down.
+
+    Retries: connection errors and 5xx are retried with jittered exponential backoff, as long as the retry budget allows.
+    Every request adds budget-ratio to the budget (capped at budget-max), every retry takes 1.
+    So a struggling downstream gets at most ~budget-ratio extra load from the retries.
+
+    Metrics (tag client): client.hedge.requests, client.hedge.wins, client.hedge.delay, client.retries, client.retries.rejected
+ */
+public class IdempotentReadPolicy {
+
+    private static final Logger log = LoggerFactory.getLogger(IdempotentReadPolicy.class);
+    private static final int SAMPLES = 1024;
+    private static final int RECOMPUTE_INTERVAL = 64;
+    private static final long BUDGET_UNIT = 1000;
+
+    private final boolean hedge;
+    private final long hedgeMinDelayNanos;
+    private final long hedgeMaxDelayNanos;
+    private final AtomicLongArray latencies = new AtomicLongArray(SAMPLES);
+    private final AtomicLong latencyCount = new AtomicLong();
+    private volatile long hedgeDelayNanos;
+    private final long budgetDeposit;
+    private final long budgetMax;
+    private final AtomicLong budget;
+    private final Retry retry;
+    private final Counter hedgeRequests;
+    private final Counter hedgeWins;
+    private final Counter retries;
+    private final Counter rejectedRetries;
+
+    public IdempotentReadPolicy(String name,
+                                boolean hedge,
+                                Duration hedgeMinDelay,
+                                Duration hedgeMaxDelay,
+                                int retryMaxAttempts,
+                                Duration retryMinBackoff,
+                                Duration retryMaxBackoff,
+                                double retryBudgetRatio,
+                                int retryBudgetMax,
+                                MeterRegistry meterRegistry) {
+        this.hedge = hedge;
+        this.hedgeMinDelayNanos = hedgeMinDelay.toNanos();
+        this.hedgeMaxDelayNanos = hedgeMaxDelay.toNanos();
+        this.hedgeDelayNanos = this.hedgeMaxDelayNanos;
+        this.budgetDeposit = (long) (retryBudgetRatio * BUDGET_UNIT);
+        this.budgetMax = retryBudgetMax * BUDGET_UNIT;
+        this.budget = new AtomicLong(this.budgetMax);
+        this.hedgeRequests = Counter.builder("client.hedge.requests").tag("client", name).register(meterRegistry);
+        this.hedgeWins = Counter.builder("client.hedge.wins").tag("client", name).register(meterRegistry);
+        this.retries = Counter.builder("client.retries").tag("client", name).register(meterRegistry);
+        this.rejectedRetries = Counter.builder("client.retries.rejected").tag("client", name).register(meterRegistry);
+        this.retry = Retry.backoff(retryMaxAttempts, retryMinBackoff)
+                          .maxBackoff(retryMaxBackoff)
+                          .jitter(0.5)
+                          .filter(IdempotentReadPolicy::isRetryable)
+                          .doBeforeRetry(rs -> {
+                              if (!this.withdraw()) {
+                                  throw Exceptions.propagate(rs.failure()); // no budget left: the call fails with the original error
+                              }
+                              this.retries.increment();
+                              log.warn("{} call failed. retrying: {}", name, rs.failure().getMessage());
+                          })
+                          .onRetryExhaustedThrow((spec, rs) -> rs.failure());
+        Gauge.builder("client.hedge.delay", this, p -> p.hedgeDelayNanos / 1_000_000_000d)
+             .tag("client", name)
+             .baseUnit("seconds")
+             .register(meterRegistry);
+    }
+
+    // no hedging, no retries
+    public static IdempotentReadPolicy none() {
+        return new IdempotentReadPolicy("none", false, Duration.ZERO, Duration.ZERO, 0, Duration.ZERO, Duration.ZERO, 0, 0, new SimpleMeterRegistry());
+    }
+
+    public <T> Mono<T> execute(Supplier<Mono<T>> call) {
+        var request = this.hedge ? this.hedged(call) : Mono.defer(call);
+        return request.retryWhen(this.retry)
+                      .doOnSubscribe(s -> this.deposit());
+    }
+
+    private <T> Mono<T> hedged(Supplier<Mono<T>> call) {
+        return Mono.defer(() -> {
+            var primary = this.timed(call, true);
+            var hedged = Mono.delay(Duration.ofNanos(this.hedgeDelayNanos))
+                             .then(Mono.defer(() -> {
+                                 this.hedgeRequests.increment();
+                                 return this.timed(call, false).doOnNext(r -> this.hedgeWins.increment());
+                             }));
+            return Mono.firstWithSignal(primary, hedged);
+        });
+    }
+
+    // a cancelled hedge request started late, its time says nothing about the response time
+    private <T> Mono<T> timed(Supplier<Mono<T>> call, boolean primary) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return call.get().doFinally(signal -> {
+                if (signal != SignalType.CANCEL || primary) {
+                    this.record(System.nanoTime() - start);
+                }
+            });
+        });
+    }
+
+    // the hedge delay is recomputed every RECOMPUTE_INTERVAL responses from the last SAMPLES response times
+    private void record(long latencyNanos) {
+        var count = this.latencyCount.getAndIncrement();
+        this.latencies.set((int) (count % SAMPLES), latencyNanos);
+        if ((count + 1) % RECOMPUTE_INTERVAL == 0) {
+            var samples = new long[(int) Math.min(count + 1, SAMPLES)];
+            for (int i = 0; i < samples.length; i++) {
+                samples[i] = this.latencies.get(i);
+            }
+            Arrays.sort(samples);
+            var p95 = samples[(int) (samples.length * 0.95)];
+            this.hedgeDelayNanos = Math.clamp(p95, this.hedgeMinDelayNanos, this.hedgeMaxDelayNanos);
+        }
+    }
+
+    private void deposit() {
+        this.budget.accumulateAndGet(this.budgetDeposit, (balance, deposit) -> Math.min(this.budgetMax, balance + deposit));
+    }
+
+    private boolean withdraw() {
+        var balance = this.budget.get();
+        while (balance >= BUDGET_UNIT) {
+            if (this.budget.compareAndSet(balance, balance - BUDGET_UNIT)) {
+                return true;
+            }
+            balance = this.budget.get();
+        }
+        this.rejectedRetries.increment();
+        return false;
+    }
+
+    private static boolean isRetryable(Throwable ex) {
+        return ex instanceof WebClientRequestException
+                || (ex instanceof WebClientResponseException e && e.getStatusCode().is5xxServerError());
+    }
+
+}
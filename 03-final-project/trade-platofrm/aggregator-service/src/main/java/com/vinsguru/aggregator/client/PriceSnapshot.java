@@ -0,0 +1,57 @@
+package com.vinsguru.aggregator.client;
+
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.dto.PriceUpdate;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/*
+    Latest price update per ticker (indexed by Ticker.ordinal()) as received from the price stream.
+    The age is based on the local receive time, not on the stock service clock.
+ */
+public class PriceSnapshot {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+
+    private final AtomicReferenceArray<Entry> prices = new AtomicReferenceArray<>(TICKERS.length);
+
+    public void update(PriceUpdate priceUpdate) {
+        this.prices.set(priceUpdate.ticker().ordinal(), new Entry(priceUpdate, System.nanoTime()));
+    }
+
+    // null when there is no price update or when it is older than the given max age
+    public PriceUpdate get(Ticker ticker, Duration maxAge) {
+        var entry = this.prices.get(ticker.ordinal());
+        if (Objects.isNull(entry) || System.nanoTime() - entry.receivedAt() > maxAge.toNanos()) {
+            return null;
+        }
+        return entry.priceUpdate();
+    }
+
+    // the price updates that are not older than the given max age
+    public List<PriceUpdate> latest(Duration maxAge) {
+        var list = new ArrayList<PriceUpdate>(TICKERS.length);
+        for (var ticker : TICKERS) {
+            var priceUpdate = this.get(ticker, maxAge);
+            if (Objects.nonNull(priceUpdate)) {
+                list.add(priceUpdate);
+            }
+        }
+        return list;
+    }
+
+    public void clear() {
+        for (int i = 0; i < TICKERS.length; i++) {
+            this.prices.set(i, null);
+        }
+    }
+
+    private record Entry(PriceUpdate priceUpdate,
+                         long receivedAt) {
+    }
+
+}
@@ -7,49 +7,168 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.Disposable;
+import reactor.core.publisher.BufferOverflowStrategy;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 public class StockServiceClient {
 
     private static final Logger log = LoggerFactory.getLogger(StockServiceClient.class);
+    // the response timeout of the client is meant for request / response calls. the stream is reconnected when it goes silent
+    private static final Duration PRICE_STREAM_IDLE_TIMEOUT = Duration.ofSeconds(30);
     private final WebClient client;
-    private Flux<PriceUpdate> flux;
+    private final PriceSnapshot priceSnapshot = new PriceSnapshot();
+    private final AtomicLong droppedPriceUpdates = new AtomicLong();
+    private final AtomicLong conflatedPriceUpdates = new AtomicLong();
+    private final int subscriberBufferSize;
+    private final Duration priceMaxAge;
+    private final IdempotentReadPolicy readPolicy;
+    private final DownstreamGuard guard;
+    private final Flux<PriceUpdate> flux;
+    private Disposable keepConnected;
 
     public StockServiceClient(WebClient client) {
+        this(client, Duration.ofSeconds(5), 256, Duration.ZERO, IdempotentReadPolicy.none(), DownstreamGuard.none());
+    }
+
+    /*
+        All the subscribers share 1 upstream price stream. It is connected by the first subscriber and
+        disconnected once the last subscriber has been gone for the grace period.
+        A slow subscriber does not slow down the others: it has its own buffer and drops the oldest updates.
+        getStockPrice is answered from the stream when the latest price is not older than priceMaxAge (0 = never).
+        The same max age applies to the latest prices replayed to a new subscriber.
+        The guard applies to getStockPrice only. The stream is a single long lived call with its own retry.
+     */
+    public StockServiceClient(WebClient client, Duration gracePeriod, int subscriberBufferSize, Duration priceMaxAge,
+                              IdempotentReadPolicy readPolicy, DownstreamGuard guard) {
         this.client = client;
+        this.subscriberBufferSize = subscriberBufferSize;
+        this.priceMaxAge = priceMaxAge;
+        this.readPolicy = readPolicy;
+        this.guard = guard;
+        this.flux = this.getPriceUpdates()
+                        .doOnNext(this.priceSnapshot::update)
+                        .doFinally(signal -> this.priceSnapshot.clear())
+                        .publish()
+                        .refCount(1, gracePeriod);
     }
 
     public Mono<StockPriceResponse> getStockPrice(Ticker ticker) {
-        return this.client.get()
-                          .uri("/stock/{ticker}", ticker)
-                          .retrieve()
-                          .bodyToMono(StockPriceResponse.class);
+        return Mono.defer(() -> {
+            var priceUpdate = this.priceMaxAge.isZero() ? null : this.priceSnapshot.get(ticker, this.priceMaxAge);
+            return Objects.nonNull(priceUpdate)
+                    ? Mono.just(new StockPriceResponse(ticker, priceUpdate.price()))
+                    : this.requestStockPrice(ticker);
+        });
     }
 
-    public Flux<PriceUpdate> priceUpdatesStream() {
-        if (Objects.isNull(this.flux)) {
-            this.flux = this.getPriceUpdates();
+    /*
+        Keeps the price stream connected without any other subscriber, so that the price snapshot is always up to date.
+        The stream is reconnected when it ends.
+     */
+    public void keepPriceStreamConnected() {
+        this.keepConnected = this.flux.repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                                      .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                                      .subscribe();
+    }
+
+    public void close() {
+        if (Objects.nonNull(this.keepConnected)) {
+            this.keepConnected.dispose();
         }
+    }
+
+    private Mono<StockPriceResponse> requestStockPrice(Ticker ticker) {
+        return this.readPolicy.execute(() -> this.guard.protect(
+                this.client.get()
+                           .uri("/stock/{ticker}", ticker)
+                           .retrieve()
+                           .bodyToMono(StockPriceResponse.class)
+        ));
+    }
+
+    /*
+        The shared upstream stream as is: no replay of the latest prices and no buffer of its own.
+        For the internal consumers that keep up with the stream and must see every update exactly once.
+     */
+    public Flux<PriceUpdate> sharedPriceUpdates() {
         return this.flux;
     }
 
+    // a new subscriber gets the latest price of every ticker first (if not older than priceMaxAge), then the live updates
+    public Flux<PriceUpdate> priceUpdatesStream() {
+        return this.priceUpdatesStream(List.of(), Duration.ZERO);
+    }
+
+    /*
+        Only the given tickers (empty = all). With a maxRate > 0, the updates are conflated: at most 1 update
+        (the latest) per ticker per maxRate window. So the subscriber holds at most 1 pending update per ticker,
+        whatever the upstream rate is.
+     */
+    public Flux<PriceUpdate> priceUpdatesStream(Collection<Ticker> tickers, Duration maxRate) {
+        var selected = tickers.isEmpty() ? EnumSet.allOf(Ticker.class) : EnumSet.copyOf(tickers);
+        var updates = Flux.defer(() -> Flux.fromIterable(this.latestPrices()))
+                          .concatWith(this.flux)
+                          .filter(p -> selected.contains(p.ticker()));
+        if (!maxRate.isZero()) {
+            updates = updates.groupBy(PriceUpdate::ticker)
+                             .flatMap(group -> this.conflate(group, maxRate));
+        }
+        return updates.onBackpressureBuffer(this.subscriberBufferSize, p -> this.droppedPriceUpdates.incrementAndGet(), BufferOverflowStrategy.DROP_OLDEST);
+    }
+
+    private List<PriceUpdate> latestPrices() {
+        return this.priceMaxAge.isZero() ? List.of() : this.priceSnapshot.latest(this.priceMaxAge);
+    }
+
+    private Flux<PriceUpdate> conflate(Flux<PriceUpdate> updates, Duration maxRate) {
+        var pending = new AtomicBoolean();
+        return updates.doOnNext(p -> {
+                          if (pending.getAndSet(true)) {
+                              this.conflatedPriceUpdates.incrementAndGet();
+                          }
+                      })
+                      .sample(maxRate)
+                      .doOnNext(p -> pending.set(false));
+    }
+
+    // updates dropped because a subscriber was too slow
+    public long getDroppedPriceUpdates() {
+        return this.droppedPriceUpdates.get();
+    }
+
+    // updates replaced by a later update of the same ticker within the max rate window
+    public long getConflatedPriceUpdates() {
+        return this.conflatedPriceUpdates.get();
+    }
+
     private Flux<PriceUpdate> getPriceUpdates() {
         return this.client.get()
                           .uri("/stock/price-stream")
                           .accept(MediaType.APPLICATION_NDJSON)
+                          .httpRequest(request -> request.<HttpClientRequest>getNativeRequest().responseTimeout(PRICE_STREAM_IDLE_TIMEOUT))
                           .retrieve()
                           .bodyToFlux(PriceUpdate.class)
-                          .retryWhen(retry())
-                          .cache(1);
+                          .retryWhen(retry());
     }
 
+    // jittered exponential backoff. it starts over once the stream emits again
     private Retry retry() {
-        return Retry.fixedDelay(100, Duration.ofSeconds(1))
+        return Retry.backoff(100, Duration.ofMillis(100))
+                    .maxBackoff(Duration.ofSeconds(5))
+                    .jitter(0.5)
+                    .transientErrors(true)
                     .doBeforeRetry(rs -> log.error("stock service price stream call failed. retrying: {}", rs.failure().getMessage()));
     }
 
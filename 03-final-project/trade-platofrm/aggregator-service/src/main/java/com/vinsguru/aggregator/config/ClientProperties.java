@@ -0,0 +1,52 @@
+package com.vinsguru.aggregator.config;
+
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import reactor.netty.http.HttpProtocol;
+
+import java.time.Duration;
+import java.util.List;
+
+/*
+    Connection pool / http client settings of a downstream service. Bound from <service>.service.client.*
+    e.g. customer.service.client.max-connections=1000
+    protocols=H2C requires the downstream to accept http2 without tls. HTTP11,H2C allows the upgrade.
+    hedge / retry-* apply to the idempotent reads only (see IdempotentReadPolicy).
+    wire-format=smile sends / accepts Smile instead of JSON (the downstream must have the Smile codec, see CodecConfig).
+    circuit-breaker-* / bulkhead-* apply to every call except the price stream (see DownstreamGuard).
+ */
+public record ClientProperties(@DefaultValue("500") int maxConnections,
+                               @DefaultValue("1000") int pendingAcquireMaxCount,
+                               @DefaultValue("5s") Duration pendingAcquireTimeout,
+                               @DefaultValue("30s") Duration maxIdleTime,
+                               @DefaultValue("5m") Duration maxLifeTime,
+                               @DefaultValue("30s") Duration evictionInterval,
+                               @DefaultValue("true") boolean lifo,
+                               @DefaultValue("HTTP11") List<HttpProtocol> protocols,
+                               @DefaultValue("2s") Duration connectTimeout,
+                               @DefaultValue("5s") Duration responseTimeout,
+                               @DefaultValue("true") boolean compress,
+                               @DefaultValue("json") WireFormat wireFormat,
+                               @DefaultValue("false") boolean hedge,
+                               @DefaultValue("10ms") Duration hedgeMinDelay,
+                               @DefaultValue("1s") Duration hedgeMaxDelay,
+                               @DefaultValue("2") int retryMaxAttempts,
+                               @DefaultValue("50ms") Duration retryMinBackoff,
+                               @DefaultValue("1s") Duration retryMaxBackoff,
+                               @DefaultValue("0.1") double retryBudgetRatio,
+                               @DefaultValue("10") int retryBudgetMax,
+                               @DefaultValue("true") boolean circuitBreaker,
+                               @DefaultValue("10s") Duration circuitBreakerWindow,
+                               @DefaultValue("20") int circuitBreakerMinimumCalls,
+                               @DefaultValue("50") float circuitBreakerFailureRate,
+                               @DefaultValue("2s") Duration circuitBreakerSlowCallDuration,
+                               @DefaultValue("80") float circuitBreakerSlowCallRate,
+                               @DefaultValue("10s") Duration circuitBreakerOpenDuration,
+                               @DefaultValue("5") int circuitBreakerHalfOpenCalls,
+                               @DefaultValue("200") int bulkheadMaxConcurrentCalls) {
+
+    public enum WireFormat {
+        JSON,
+        SMILE
+    }
+
+}
@@ -1,34 +1,200 @@
 package com.vinsguru.aggregator.config;
 
+import com.vinsguru.aggregator.client.ClientTimingFilter;
 import com.vinsguru.aggregator.client.CustomerServiceClient;
+import com.vinsguru.aggregator.client.DownstreamGuard;
+import com.vinsguru.aggregator.client.IdempotentReadPolicy;
 import com.vinsguru.aggregator.client.StockServiceClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import io.github.resilience4j.bulkhead.BulkheadConfig;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerConfig;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.micrometer.tagged.TaggedBulkheadMetrics;
+import io.github.resilience4j.micrometer.tagged.TaggedCircuitBreakerMetrics;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.channel.ChannelOption;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.bind.Binder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientRequestException;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import reactor.netty.http.HttpProtocol;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeoutException;
 
 @Configuration
 public class ServiceClientsConfig {
 
     private static final Logger log = LoggerFactory.getLogger(ServiceClientsConfig.class);
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+    private final Binder binder;
+    private final WebClient.Builder webClientBuilder;
+    private final MeterRegistry meterRegistry;
+    private final CircuitBreakerRegistry circuitBreakerRegistry = CircuitBreakerRegistry.ofDefaults();
+    private final BulkheadRegistry bulkheadRegistry = BulkheadRegistry.ofDefaults();
+
+    // state, failure / slow call rates and permitted calls are published as resilience4j.circuitbreaker.* / resilience4j.bulkhead.*
+    public ServiceClientsConfig(Environment environment, MeterRegistry meterRegistry, WebClient.Builder webClientBuilder) {
+        this.binder = Binder.get(environment);
+        this.webClientBuilder = webClientBuilder;
+        this.meterRegistry = meterRegistry;
+        TaggedCircuitBreakerMetrics.ofCircuitBreakerRegistry(this.circuitBreakerRegistry).bindTo(meterRegistry);
+        TaggedBulkheadMetrics.ofBulkheadRegistry(this.bulkheadRegistry).bindTo(meterRegistry);
+    }
 
     @Bean
-    public CustomerServiceClient customerServiceClient(@Value("${customer.service.url}") String baseUrl) {
-        return new CustomerServiceClient(createWebClient(baseUrl));
+    public CustomerServiceClient customerServiceClient(@Value("${customer.service.url}") String baseUrl,
+                                                       MeterRegistry meterRegistry) {
+        var properties = clientProperties("customer");
+        return new CustomerServiceClient(
+                createWebClient("customer-service", baseUrl, properties),
+                createReadPolicy("customer-service", properties, meterRegistry),
+                createGuard("customer-service", properties)
+        );
     }
 
     @Bean
-    public StockServiceClient stockServiceClient(@Value("${stock.service.url}") String baseUrl) {
-        return new StockServiceClient(createWebClient(baseUrl));
+    public StockServiceClient stockServiceClient(@Value("${stock.service.url}") String baseUrl,
+                                                 @Value("${stock.price-stream.grace-period:5s}") Duration gracePeriod,
+                                                 @Value("${stock.price-stream.subscriber-buffer-size:256}") int subscriberBufferSize,
+                                                 @Value("${stock.price-snapshot.max-age:0s}") Duration priceMaxAge,
+                                                 @Value("${stock.price-snapshot.keep-connected:false}") boolean keepConnected,
+                                                 MeterRegistry meterRegistry) {
+        var properties = clientProperties("stock");
+        var client = new StockServiceClient(
+                createWebClient("stock-service", baseUrl, properties),
+                gracePeriod,
+                subscriberBufferSize,
+                priceMaxAge,
+                createReadPolicy("stock-service", properties, meterRegistry),
+                createGuard("stock-service", properties)
+        );
+        if (keepConnected) {
+            client.keepPriceStreamConnected();
+        }
+        FunctionCounter.builder("price.stream.dropped", client, StockServiceClient::getDroppedPriceUpdates)
+                       .tag("reason", "slow-subscriber")
+                       .register(meterRegistry);
+        FunctionCounter.builder("price.stream.dropped", client, StockServiceClient::getConflatedPriceUpdates)
+                       .tag("reason", "conflated")
+                       .register(meterRegistry);
+        return client;
+    }
+
+    private ClientProperties clientProperties(String service) {
+        return this.binder.bindOrCreate(service + ".service.client", ClientProperties.class);
+    }
+
+    private IdempotentReadPolicy createReadPolicy(String name, ClientProperties properties, MeterRegistry meterRegistry) {
+        return new IdempotentReadPolicy(
+                name,
+                properties.hedge(),
+                properties.hedgeMinDelay(),
+                properties.hedgeMaxDelay(),
+                properties.retryMaxAttempts(),
+                properties.retryMinBackoff(),
+                properties.retryMaxBackoff(),
+                properties.retryBudgetRatio(),
+                properties.retryBudgetMax(),
+                meterRegistry
+        );
+    }
+
+    /*
+        Only connection errors, timeouts and 5xx are failures. 4xx are answers of a healthy service.
+        The bulkhead sits inside the circuit breaker: its rejections are ignored, they are not calls to the service.
+     */
+    private DownstreamGuard createGuard(String name, ClientProperties properties) {
+        if (!properties.circuitBreaker()) {
+            return DownstreamGuard.none();
+        }
+        var circuitBreakerConfig = CircuitBreakerConfig.custom()
+                                                       .slidingWindowType(CircuitBreakerConfig.SlidingWindowType.TIME_BASED)
+                                                       .slidingWindowSize(windowSeconds(properties.circuitBreakerWindow()))
+                                                       .minimumNumberOfCalls(properties.circuitBreakerMinimumCalls())
+                                                       .failureRateThreshold(properties.circuitBreakerFailureRate())
+                                                       .slowCallDurationThreshold(properties.circuitBreakerSlowCallDuration())
+                                                       .slowCallRateThreshold(properties.circuitBreakerSlowCallRate())
+                                                       .waitDurationInOpenState(properties.circuitBreakerOpenDuration())
+                                                       .permittedNumberOfCallsInHalfOpenState(properties.circuitBreakerHalfOpenCalls())
+                                                       .automaticTransitionFromOpenToHalfOpenEnabled(true)
+                                                       .recordException(ServiceClientsConfig::isFailure)
+                                                       .ignoreExceptions(BulkheadFullException.class)
+                                                       .build();
+        var bulkheadConfig = BulkheadConfig.custom()
+                                           .maxConcurrentCalls(properties.bulkheadMaxConcurrentCalls())
+                                           .maxWaitDuration(Duration.ZERO)
+                                           .build();
+        return new DownstreamGuard(
+                name,
+                this.circuitBreakerRegistry.circuitBreaker(name, circuitBreakerConfig),
+                this.bulkheadRegistry.bulkhead(name, bulkheadConfig)
+        );
+    }
+
+    // the time based window is in whole seconds, rounded up (min 1)
+    private static int windowSeconds(Duration window) {
+        return (int) Math.max(1, Math.ceilDiv(window.toMillis(), 1000));
+    }
+
+    private static boolean isFailure(Throwable ex) {
+        return switch (ex) {
+            case WebClientResponseException e -> e.getStatusCode().is5xxServerError();
+            case WebClientRequestException e -> true;
+            case TimeoutException e -> true;
+            default -> false;
+        };
     }
 
-    private WebClient createWebClient(String baseUrl) {
-        log.info("base url: {}", baseUrl);
-        return WebClient.builder()
-                        .baseUrl(baseUrl)
-                        .build();
+    /*
+        1 connection pool per downstream service, so that one of them can not use up the connections of the other.
+        Pool metrics are published as reactor.netty.connection.provider.* tagged with the pool name.
+     */
+    private WebClient createWebClient(String name, String baseUrl, ClientProperties properties) {
+        log.info("base url: {}, client: {}", baseUrl, properties);
+        var provider = ConnectionProvider.builder(name)
+                                         .maxConnections(properties.maxConnections())
+                                         .pendingAcquireMaxCount(properties.pendingAcquireMaxCount())
+                                         .pendingAcquireTimeout(properties.pendingAcquireTimeout())
+                                         .maxIdleTime(properties.maxIdleTime())
+                                         .maxLifeTime(properties.maxLifeTime())
+                                         .evictInBackground(properties.evictionInterval())
+                                         .metrics(true);
+        if (properties.lifo()) {
+            provider.lifo();
+        }
+        var httpClient = HttpClient.create(provider.build())
+                                   .protocol(properties.protocols().toArray(HttpProtocol[]::new))
+                                   .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.connectTimeout().toMillis())
+                                   .responseTimeout(properties.responseTimeout())
+                                   .compress(properties.compress())
+                                   .keepAlive(true);
+        // the builder of spring boot comes with the configured codecs (json + smile) and the observation (tracing headers, http.client.requests)
+        var builder = this.webClientBuilder.clone()
+                                           .baseUrl(baseUrl)
+                                           .clientConnector(new ReactorClientHttpConnector(httpClient))
+                                           .filter(new ClientTimingFilter(name, this.meterRegistry));
+        if (properties.wireFormat() == ClientProperties.WireFormat.SMILE) {
+            // a request without a body ignores the content type. explicit accept / content type (e.g. ndjson) take precedence
+            builder.defaultHeaders(headers -> {
+                headers.setAccept(List.of(SMILE, MediaType.APPLICATION_JSON));
+                headers.setContentType(SMILE);
+            });
+        }
+        return builder.build();
     }
 
 }
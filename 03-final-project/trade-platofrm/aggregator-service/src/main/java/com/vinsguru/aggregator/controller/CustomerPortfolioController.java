@@ -1,21 +1,30 @@
 package com.vinsguru.aggregator.controller;
 
 import com.vinsguru.aggregator.dto.CustomerInformation;
+import com.vinsguru.aggregator.dto.PortfolioValuation;
 import com.vinsguru.aggregator.dto.StockTradeResponse;
 import com.vinsguru.aggregator.dto.TradeRequest;
 import com.vinsguru.aggregator.service.CustomerPortfolioService;
+import com.vinsguru.aggregator.service.PortfolioValuationService;
 import com.vinsguru.aggregator.validator.RequestValidator;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("customers")
 public class CustomerPortfolioController {
 
     private final CustomerPortfolioService customerPortfolioService;
+    private final PortfolioValuationService portfolioValuationService;
 
-    public CustomerPortfolioController(CustomerPortfolioService customerPortfolioService) {
+    public CustomerPortfolioController(CustomerPortfolioService customerPortfolioService,
+                                       PortfolioValuationService portfolioValuationService) {
         this.customerPortfolioService = customerPortfolioService;
+        this.portfolioValuationService = portfolioValuationService;
     }
 
     @GetMapping("/{customerId}")
@@ -23,10 +32,28 @@ public class CustomerPortfolioController {
         return this.customerPortfolioService.getCustomerInformation(customerId);
     }
 
+    @GetMapping("/{customerId}/valuation")
+    public Mono<PortfolioValuation> getValuation(@PathVariable Integer customerId) {
+        return this.portfolioValuationService.getValuation(customerId);
+    }
+
+    @GetMapping(value = "/{customerId}/valuation/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<PortfolioValuation> valuationStream(@PathVariable Integer customerId) {
+        return this.portfolioValuationService.valuationStream(customerId);
+    }
+
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerInformation> getCustomerInformation(@RequestBody Mono<List<Integer>> mono) {
+        return mono.flatMapMany(this.customerPortfolioService::getCustomerInformation);
+    }
+
+    // the Idempotency-Key is passed on to the customer service, which executes a trade only once per key
     @PostMapping("/{customerId}/trade")
-    public Mono<StockTradeResponse> trade(@PathVariable Integer customerId, @RequestBody Mono<TradeRequest> mono) {
+    public Mono<StockTradeResponse> trade(@PathVariable Integer customerId,
+                                          @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                          @RequestBody Mono<TradeRequest> mono) {
         return mono.transform(RequestValidator.validate())
-                   .flatMap(req -> this.customerPortfolioService.trade(customerId, req));
+                   .flatMap(req -> this.customerPortfolioService.trade(customerId, req, idempotencyKey));
     }
 
 }
@@ -1,26 +1,51 @@
 package com.vinsguru.aggregator.controller;
 
 import com.vinsguru.aggregator.client.StockServiceClient;
+import com.vinsguru.aggregator.domain.CandleInterval;
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.dto.Candle;
 import com.vinsguru.aggregator.dto.PriceUpdate;
+import com.vinsguru.aggregator.exceptions.ApplicationExceptions;
+import com.vinsguru.aggregator.service.CandleService;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 import reactor.core.publisher.Flux;
 
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+
 @RestController
 @RequestMapping("stock")
 public class StockPriceStreamController {
 
     private final StockServiceClient stockServiceClient;
+    private final CandleService candleService;
 
-    public StockPriceStreamController(StockServiceClient stockServiceClient) {
+    public StockPriceStreamController(StockServiceClient stockServiceClient, CandleService candleService) {
         this.stockServiceClient = stockServiceClient;
+        this.candleService = candleService;
     }
 
+    // e.g. /stock/price-stream?tickers=APPLE,GOOGLE&maxRateMs=250
     @GetMapping(value = "/price-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    public Flux<PriceUpdate> priceUpdatesStream(){
-        return this.stockServiceClient.priceUpdatesStream();
+    public Flux<PriceUpdate> priceUpdatesStream(@RequestParam(required = false) List<Ticker> tickers,
+                                                @RequestParam(defaultValue = "0") long maxRateMs){
+        if (maxRateMs < 0) {
+            return ApplicationExceptions.<PriceUpdate>invalidRequest("maxRateMs must be >= 0").flux();
+        }
+        return this.stockServiceClient.priceUpdatesStream(Objects.requireNonNullElse(tickers, List.of()), Duration.ofMillis(maxRateMs));
+    }
+
+    // e.g. /stock/candles/GOOGLE?interval=ONE_MINUTE
+    @GetMapping(value = "/candles/{ticker}", produces = {MediaType.TEXT_EVENT_STREAM_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<Candle> candleStream(@PathVariable Ticker ticker,
+                                     @RequestParam(defaultValue = "ONE_MINUTE") CandleInterval interval){
+        return this.candleService.candleStream(ticker, interval);
     }
 
 }
@@ -0,0 +1,21 @@
+package com.vinsguru.aggregator.domain;
+
+import java.time.Duration;
+
+public enum CandleInterval {
+
+    ONE_SECOND(Duration.ofSeconds(1)),
+    ONE_MINUTE(Duration.ofMinutes(1)),
+    FIVE_MINUTES(Duration.ofMinutes(5));
+
+    private final Duration duration;
+
+    CandleInterval(Duration duration) {
+        this.duration = duration;
+    }
+
+    public Duration getDuration() {
+        return duration;
+    }
+
+}
@@ -0,0 +1,16 @@
+package com.vinsguru.aggregator.dto;
+
+import com.vinsguru.aggregator.domain.CandleInterval;
+import com.vinsguru.aggregator.domain.Ticker;
+
+import java.time.LocalDateTime;
+
+public record Candle(Ticker ticker,
+                     CandleInterval interval,
+                     LocalDateTime start,
+                     Integer open,
+                     Integer high,
+                     Integer low,
+                     Integer close,
+                     Integer ticks) {
+}
@@ -0,0 +1,9 @@
+package com.vinsguru.aggregator.dto;
+
+import com.vinsguru.aggregator.domain.Ticker;
+
+public record HoldingValuation(Ticker ticker,
+                               Integer quantity,
+                               Integer price,
+                               Integer value) {
+}
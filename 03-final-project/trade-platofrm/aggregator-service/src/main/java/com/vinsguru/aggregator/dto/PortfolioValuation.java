@@ -0,0 +1,10 @@
+package com.vinsguru.aggregator.dto;
+
+import java.util.List;
+
+public record PortfolioValuation(Integer customerId,
+                                 Integer balance,
+                                 List<HoldingValuation> holdings,
+                                 Integer holdingsValue,
+                                 Integer totalValue) {
+}
@@ -12,16 +12,12 @@ public class ApplicationExceptions {
         return Mono.error(new InvalidTradeRequestException(message));
     }
 
-    public static <T> Mono<T> missingTicker(){
-        return Mono.error(new InvalidTradeRequestException("Ticker is required"));
+    public static <T> Mono<T> invalidRequest(String message){
+        return Mono.error(new InvalidRequestException(message));
     }
 
-    public static <T> Mono<T> missingTradeAction(){
-        return Mono.error(new InvalidTradeRequestException("Trade action is required"));
-    }
-
-    public static <T> Mono<T> invalidQuantity(){
-        return Mono.error(new InvalidTradeRequestException("Quantity should be > 0"));
+    public static <T> Mono<T> idempotencyKeyReused(String message){
+        return Mono.error(new IdempotencyKeyReusedException(message));
     }
 
 }
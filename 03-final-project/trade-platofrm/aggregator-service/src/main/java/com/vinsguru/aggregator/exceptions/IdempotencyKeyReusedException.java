@@ -0,0 +1,10 @@
+package com.vinsguru.aggregator.exceptions;
+
+// the message comes from the customer service, where the Idempotency-Key is enforced
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    public IdempotencyKeyReusedException(String message) {
+        super(message);
+    }
+
+}
@@ -0,0 +1,9 @@
+package com.vinsguru.aggregator.exceptions;
+
+public class InvalidRequestException extends RuntimeException {
+
+    public InvalidRequestException(String message) {
+        super(message);
+    }
+
+}
@@ -6,4 +6,9 @@ public class InvalidTradeRequestException extends RuntimeException {
         super(message);
     }
 
+    // without a stack trace, for preallocated / shared instances
+    public InvalidTradeRequestException(String message, boolean writableStackTrace){
+        super(message, null, false, writableStackTrace);
+    }
+
 }
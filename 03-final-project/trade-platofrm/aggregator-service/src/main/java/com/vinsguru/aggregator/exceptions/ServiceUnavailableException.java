@@ -0,0 +1,11 @@
+package com.vinsguru.aggregator.exceptions;
+
+public class ServiceUnavailableException extends RuntimeException {
+
+    private static final String MESSAGE = "%s is not available at the moment. Please try again later";
+
+    public ServiceUnavailableException(String service) {
+        super(MESSAGE.formatted(service));
+    }
+
+}
@@ -0,0 +1,148 @@
+package com.vinsguru.aggregator.service;
+
+import com.vinsguru.aggregator.client.StockServiceClient;
+import com.vinsguru.aggregator.domain.CandleInterval;
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.dto.Candle;
+import com.vinsguru.aggregator.dto.PriceUpdate;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+
+/*
+    OHLC candles per ticker and interval, computed incrementally from the price stream (by the price update time).
+    A candle is published once it is closed, i.e. when the first update of the next interval arrives.
+    The last history-size closed candles of every ticker / interval are kept in a ring buffer.
+
+    The candles are computed while there is at least 1 subscriber (+ grace period), sharing 1 price stream subscription.
+    They are fed by the raw shared price stream: every tick is counted once, whatever the subscribers do.
+    A slow subscriber only drops its own oldest candles.
+    The price updates have no volume, so there is no VWAP.
+ */
+@Service
+public class CandleService {
+
+    private static final CandleInterval[] INTERVALS = CandleInterval.values();
+
+    private final Series[][] series = new Series[Ticker.values().length][INTERVALS.length];
+    private final Flux<Candle> candles;
+    private final int subscriberBufferSize;
+
+    public CandleService(StockServiceClient stockServiceClient,
+                         @Value("${stock.candles.history-size:300}") int historySize,
+                         @Value("${stock.price-stream.grace-period:5s}") Duration gracePeriod,
+                         @Value("${stock.candles.subscriber-buffer-size:256}") int subscriberBufferSize) {
+        this.subscriberBufferSize = subscriberBufferSize;
+        for (var ticker : Ticker.values()) {
+            for (var interval : INTERVALS) {
+                this.series[ticker.ordinal()][interval.ordinal()] = new Series(ticker, interval, historySize);
+            }
+        }
+        this.candles = stockServiceClient.sharedPriceUpdates()
+                                         .concatMapIterable(this::update)
+                                         .publish()
+                                         .refCount(1, gracePeriod);
+    }
+
+    // the closed candles in the history first, then the live ones
+    public Flux<Candle> candleStream(Ticker ticker, CandleInterval interval) {
+        return Flux.defer(() -> {
+            var history = this.history(ticker, interval);
+            var last = history.isEmpty() ? LocalDateTime.MIN : history.getLast().start();
+            return Flux.fromIterable(history)
+                       .concatWith(this.candles.filter(c -> c.ticker() == ticker && c.interval() == interval && c.start().isAfter(last))
+                                               .onBackpressureBuffer(this.subscriberBufferSize, c -> {}, BufferOverflowStrategy.DROP_OLDEST));
+        });
+    }
+
+    public List<Candle> history(Ticker ticker, CandleInterval interval) {
+        return this.series[ticker.ordinal()][interval.ordinal()].history();
+    }
+
+    // invoked sequentially by the shared price stream
+    private List<Candle> update(PriceUpdate priceUpdate) {
+        var closed = new ArrayList<Candle>(INTERVALS.length);
+        for (var s : this.series[priceUpdate.ticker().ordinal()]) {
+            var candle = s.update(priceUpdate);
+            if (Objects.nonNull(candle)) {
+                closed.add(candle);
+            }
+        }
+        return closed;
+    }
+
+    private static class Series {
+
+        private final Ticker ticker;
+        private final CandleInterval interval;
+        private final long intervalSeconds;
+        private final Candle[] history;
+        private int count;
+        // the candle in progress
+        private LocalDateTime start;
+        private int open;
+        private int high;
+        private int low;
+        private int close;
+        private int ticks;
+
+        private Series(Ticker ticker, CandleInterval interval, int historySize) {
+            this.ticker = ticker;
+            this.interval = interval;
+            this.intervalSeconds = interval.getDuration().toSeconds();
+            this.history = new Candle[historySize];
+        }
+
+        // returns the closed candle if the update starts a new one. late updates are ignored
+        private synchronized Candle update(PriceUpdate priceUpdate) {
+            var bucket = this.bucket(priceUpdate.time());
+            var price = priceUpdate.price();
+            if (Objects.nonNull(this.start) && bucket.isBefore(this.start)) {
+                return null;
+            }
+            if (Objects.nonNull(this.start) && bucket.isEqual(this.start)) {
+                this.high = Math.max(this.high, price);
+                this.low = Math.min(this.low, price);
+                this.close = price;
+                this.ticks++;
+                return null;
+            }
+            var closed = Objects.isNull(this.start) ? null : this.close();
+            this.start = bucket;
+            this.open = this.high = this.low = this.close = price;
+            this.ticks = 1;
+            return closed;
+        }
+
+        private Candle close() {
+            var candle = new Candle(this.ticker, this.interval, this.start, this.open, this.high, this.low, this.close, this.ticks);
+            this.history[this.count++ % this.history.length] = candle;
+            return candle;
+        }
+
+        // oldest first
+        private synchronized List<Candle> history() {
+            var size = Math.min(this.count, this.history.length);
+            var list = new ArrayList<Candle>(size);
+            for (int i = this.count - size; i < this.count; i++) {
+                list.add(this.history[i % this.history.length]);
+            }
+            return list;
+        }
+
+        private LocalDateTime bucket(LocalDateTime time) {
+            var epochSecond = time.toEpochSecond(ZoneOffset.UTC);
+            return LocalDateTime.ofEpochSecond(epochSecond - Math.floorMod(epochSecond, this.intervalSeconds), 0, ZoneOffset.UTC);
+        }
+
+    }
+
+}
@@ -0,0 +1,106 @@
+package com.vinsguru.aggregator.service;
+
+import com.vinsguru.aggregator.client.CustomerServiceClient;
+import com.vinsguru.aggregator.dto.CustomerInformation;
+import com.vinsguru.aggregator.exceptions.CustomerNotFoundException;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/*
+    Single flight: concurrent requests for the same customer share 1 in-flight call to the customer service.
+    The call is forgotten as soon as it completes, so a request never gets a response older than its own arrival.
+
+    With a batch-window > 0, the calls for distinct customers are also merged into 1 batch call,
+    issued when max-batch-size customers are pending or after the window, whichever comes first.
+ */
+@Component
+public class CustomerInformationLoader {
+
+    private final CustomerServiceClient customerServiceClient;
+    private final ConcurrentHashMap<Integer, Mono<CustomerInformation>> inFlight = new ConcurrentHashMap<>();
+    private final Sinks.Many<PendingRequest> sink = Sinks.many().unicast().onBackpressureBuffer();
+    private final boolean batching;
+    private Disposable batcher;
+
+    public CustomerInformationLoader(CustomerServiceClient customerServiceClient,
+                                     @Value("${customer.information.batch-window:0ms}") Duration batchWindow,
+                                     @Value("${customer.information.max-batch-size:100}") int maxBatchSize) {
+        this.customerServiceClient = customerServiceClient;
+        this.batching = !batchWindow.isZero();
+        if (this.batching) {
+            // fair backpressure: a timer flush waits for demand instead of failing the pipeline for good
+            this.batcher = this.sink.asFlux()
+                                    .bufferTimeout(maxBatchSize, batchWindow, true)
+                                    .flatMap(this::load)
+                                    .subscribe();
+        }
+    }
+
+    public Mono<CustomerInformation> get(Integer customerId) {
+        return Mono.defer(() -> this.inFlight.computeIfAbsent(customerId, this::newEntry));
+    }
+
+    private Mono<CustomerInformation> newEntry(Integer customerId) {
+        var entry = new AtomicReference<Mono<CustomerInformation>>();
+        entry.set(
+                this.call(customerId)
+                    .doFinally(signal -> this.inFlight.remove(customerId, entry.get()))
+                    .cache()
+        );
+        return entry.get();
+    }
+
+    private Mono<CustomerInformation> call(Integer customerId) {
+        if (!this.batching) {
+            return this.customerServiceClient.getCustomerInformation(customerId);
+        }
+        return Mono.defer(() -> {
+            var request = new PendingRequest(customerId, Sinks.one());
+            this.sink.emitNext(request, Sinks.EmitFailureHandler.busyLooping(Duration.ofSeconds(1)));
+            return request.sink().asMono();
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (Objects.nonNull(this.batcher)) {
+            this.batcher.dispose();
+        }
+    }
+
+    // the customer service leaves out the unknown customers
+    private Mono<Void> load(List<PendingRequest> batch) {
+        var customerIds = batch.stream().map(PendingRequest::customerId).toList();
+        return this.customerServiceClient.getCustomerInformation(customerIds)
+                                         .collectMap(CustomerInformation::id, Function.identity())
+                                         .doOnNext(map -> batch.forEach(r -> r.complete(map.get(r.customerId()))))
+                                         .doOnError(ex -> batch.forEach(r -> r.sink().tryEmitError(ex)))
+                                         .onErrorResume(ex -> Mono.empty())
+                                         .then();
+    }
+
+    private record PendingRequest(Integer customerId,
+                                  Sinks.One<CustomerInformation> sink) {
+
+        private void complete(CustomerInformation customerInformation) {
+            if (Objects.isNull(customerInformation)) {
+                this.sink.tryEmitError(new CustomerNotFoundException(this.customerId));
+            } else {
+                this.sink.tryEmitValue(customerInformation);
+            }
+        }
+
+    }
+
+}
@@ -3,29 +3,82 @@ package com.vinsguru.aggregator.service;
 import com.vinsguru.aggregator.client.CustomerServiceClient;
 import com.vinsguru.aggregator.client.StockServiceClient;
 import com.vinsguru.aggregator.dto.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
+import reactor.core.observability.micrometer.Micrometer;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.List;
 
 @Service
 public class CustomerPortfolioService {
 
+    private static final Logger log = LoggerFactory.getLogger(CustomerPortfolioService.class);
+
     private final StockServiceClient stockServiceClient;
     private final CustomerServiceClient customerServiceClient;
+    private final CustomerInformationLoader customerInformationLoader;
+    private final MeterRegistry meterRegistry;
+    private final Sinks.Many<StockTradeResponse> executedTrades = Sinks.many().multicast().directBestEffort();
 
-    public CustomerPortfolioService(StockServiceClient stockServiceClient, CustomerServiceClient customerServiceClient) {
+    public CustomerPortfolioService(StockServiceClient stockServiceClient,
+                                    CustomerServiceClient customerServiceClient,
+                                    CustomerInformationLoader customerInformationLoader,
+                                    MeterRegistry meterRegistry) {
         this.stockServiceClient = stockServiceClient;
         this.customerServiceClient = customerServiceClient;
+        this.customerInformationLoader = customerInformationLoader;
+        this.meterRegistry = meterRegistry;
     }
 
     public Mono<CustomerInformation> getCustomerInformation(Integer customerId) {
-        return this.customerServiceClient.getCustomerInformation(customerId);
+        return this.customerInformationLoader.get(customerId);
+    }
+
+    public Flux<CustomerInformation> getCustomerInformation(List<Integer> customerIds) {
+        return this.customerServiceClient.getCustomerInformation(customerIds);
     }
 
     public Mono<StockTradeResponse> trade(Integer customerId, TradeRequest request) {
+        return this.trade(customerId, request, null);
+    }
+
+    /*
+        The idempotency key (optional) is passed on to the customer service.
+        Each stage is timed (<name>.flow.duration, see the management.metrics.distribution.* properties):
+        trade.price-lookup, trade.customer-service and trade for the whole.
+     */
+    public Mono<StockTradeResponse> trade(Integer customerId, TradeRequest request, String idempotencyKey) {
         return this.stockServiceClient.getStockPrice(request.ticker())
+                                      .name("trade.price-lookup")
+                                      .tap(Micrometer.metrics(this.meterRegistry))
                                       .map(StockPriceResponse::price)
                                       .map(price -> this.toStockTradeRequest(request, price))
-                                      .flatMap(req -> this.customerServiceClient.trade(customerId, req));
+                                      .flatMap(req -> this.customerServiceClient.trade(customerId, req, idempotencyKey)
+                                                                                .name("trade.customer-service")
+                                                                                .tap(Micrometer.metrics(this.meterRegistry)))
+                                      .name("trade")
+                                      .tap(Micrometer.metrics(this.meterRegistry))
+                                      .doOnNext(this::publish);
+    }
+
+    // the trades executed via this instance. a subscriber that can not keep up misses trades
+    public Flux<StockTradeResponse> executedTrades() {
+        return this.executedTrades.asFlux();
+    }
+
+    private void publish(StockTradeResponse response) {
+        Sinks.EmitResult result;
+        while ((result = this.executedTrades.tryEmitNext(response)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait(); // another trade is being published
+        }
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            log.warn("executed trade of customer {} is not published: {}", response.customerId(), result);
+        }
     }
 
     private StockTradeRequest toStockTradeRequest(TradeRequest request, Integer price) {
@@ -0,0 +1,131 @@
+package com.vinsguru.aggregator.service;
+
+import com.vinsguru.aggregator.client.StockServiceClient;
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.dto.CustomerInformation;
+import com.vinsguru.aggregator.dto.Holding;
+import com.vinsguru.aggregator.dto.HoldingValuation;
+import com.vinsguru.aggregator.dto.PortfolioValuation;
+import com.vinsguru.aggregator.dto.PriceUpdate;
+import com.vinsguru.aggregator.dto.StockPriceResponse;
+import com.vinsguru.aggregator.dto.StockTradeResponse;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.ArrayList;
+
+/*
+    Value of the holdings of a customer at the latest prices.
+    The stream reads the holdings and then only follows the price updates of the held tickers. A new valuation
+    is pushed only when the price of a held ticker changes, and only the changed holding is recomputed.
+    The holdings are read again after every trade of the customer executed via this instance.
+    Trades executed elsewhere (another instance, the customer service directly) show up only on resubscription.
+ */
+@Service
+public class PortfolioValuationService {
+
+    private final CustomerInformationLoader customerInformationLoader;
+    private final StockServiceClient stockServiceClient;
+    private final CustomerPortfolioService customerPortfolioService;
+
+    public PortfolioValuationService(CustomerInformationLoader customerInformationLoader,
+                                     StockServiceClient stockServiceClient,
+                                     CustomerPortfolioService customerPortfolioService) {
+        this.customerInformationLoader = customerInformationLoader;
+        this.stockServiceClient = stockServiceClient;
+        this.customerPortfolioService = customerPortfolioService;
+    }
+
+    public Mono<PortfolioValuation> getValuation(Integer customerId) {
+        return this.getValuationState(customerId)
+                   .map(ValuationState::toValuation);
+    }
+
+    // a trade of the customer replaces the current state (and its price subscription) with a fresh one
+    public Flux<PortfolioValuation> valuationStream(Integer customerId) {
+        var trades = this.customerPortfolioService.executedTrades()
+                                                  .filter(t -> customerId.equals(t.customerId()))
+                                                  .map(StockTradeResponse::customerId);
+        return trades.startWith(customerId)
+                     .switchMap(id -> this.getValuationState(id)
+                                          .flatMapMany(state -> Flux.just(state.toValuation())
+                                                                    .concatWith(this.valuationUpdates(state))));
+    }
+
+    private Flux<PortfolioValuation> valuationUpdates(ValuationState state) {
+        if (state.tickers.isEmpty()) {
+            return Flux.empty(); // nothing to follow
+        }
+        return this.stockServiceClient.priceUpdatesStream(state.tickers, Duration.ZERO)
+                                      .filter(state::update)
+                                      .map(p -> state.toValuation());
+    }
+
+    // holdings + the current price of each held ticker
+    private Mono<ValuationState> getValuationState(Integer customerId) {
+        return this.customerInformationLoader.get(customerId)
+                   .flatMap(info -> Flux.fromIterable(info.holdings())
+                                        .flatMap(h -> this.stockServiceClient.getStockPrice(h.ticker()))
+                                        .collectList()
+                                        .map(prices -> {
+                                            var state = new ValuationState(info);
+                                            prices.forEach(state::setPrice);
+                                            return state;
+                                        }));
+    }
+
+    // used by 1 subscriber at a time
+    private static class ValuationState {
+
+        private static final Ticker[] TICKERS = Ticker.values();
+
+        private final Integer customerId;
+        private final Integer balance;
+        private final ArrayList<Ticker> tickers = new ArrayList<>();
+        private final int[] quantities = new int[TICKERS.length];
+        private final int[] prices = new int[TICKERS.length];
+        private int holdingsValue;
+
+        private ValuationState(CustomerInformation info) {
+            this.customerId = info.id();
+            this.balance = info.balance();
+            for (Holding holding : info.holdings()) {
+                this.tickers.add(holding.ticker());
+                this.quantities[holding.ticker().ordinal()] = holding.quantity();
+            }
+        }
+
+        private void setPrice(StockPriceResponse response) {
+            this.setPrice(response.ticker(), response.price());
+        }
+
+        // false if the price has not changed
+        private boolean update(PriceUpdate priceUpdate) {
+            var i = priceUpdate.ticker().ordinal();
+            if (this.quantities[i] == 0 || this.prices[i] == priceUpdate.price()) {
+                return false;
+            }
+            this.setPrice(priceUpdate.ticker(), priceUpdate.price());
+            return true;
+        }
+
+        private void setPrice(Ticker ticker, int price) {
+            var i = ticker.ordinal();
+            this.holdingsValue += this.quantities[i] * (price - this.prices[i]);
+            this.prices[i] = price;
+        }
+
+        private PortfolioValuation toValuation() {
+            var holdings = new ArrayList<HoldingValuation>(this.tickers.size());
+            for (var ticker : this.tickers) {
+                var i = ticker.ordinal();
+                holdings.add(new HoldingValuation(ticker, this.quantities[i], this.prices[i], this.quantities[i] * this.prices[i]));
+            }
+            return new PortfolioValuation(this.customerId, this.balance, holdings, this.holdingsValue, this.balance + this.holdingsValue);
+        }
+
+    }
+
+}
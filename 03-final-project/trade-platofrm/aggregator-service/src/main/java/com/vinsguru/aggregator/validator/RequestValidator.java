@@ -1,34 +1,76 @@
 package com.vinsguru.aggregator.validator;
 
 import com.vinsguru.aggregator.dto.TradeRequest;
-import com.vinsguru.aggregator.exceptions.ApplicationExceptions;
+import com.vinsguru.aggregator.exceptions.InvalidTradeRequestException;
 import reactor.core.publisher.Mono;
+import reactor.core.publisher.SynchronousSink;
 
 import java.util.Objects;
-import java.util.function.Predicate;
+import java.util.StringJoiner;
 import java.util.function.UnaryOperator;
 
+/*
+    All the fields are checked in 1 pass and all the violations are reported in 1 exception.
+    The exceptions are stackless and preallocated, 1 per combination of violations (bit mask).
+ */
 public class RequestValidator {
 
+    private static final int MISSING_TICKER = 1;
+    private static final int MISSING_TRADE_ACTION = 1 << 1;
+    private static final int INVALID_QUANTITY = 1 << 2;
+    private static final String[] MESSAGES = {
+            "Ticker is required",
+            "Trade action is required",
+            "Quantity should be > 0"
+    };
+    private static final InvalidTradeRequestException[] EXCEPTIONS = new InvalidTradeRequestException[1 << MESSAGES.length];
+    private static final Mono<TradeRequest> EMPTY_REQUEST;
+    private static final UnaryOperator<Mono<TradeRequest>> VALIDATOR;
+
+    static {
+        for (int violations = 1; violations < EXCEPTIONS.length; violations++) {
+            EXCEPTIONS[violations] = new InvalidTradeRequestException(message(violations), false);
+        }
+        EMPTY_REQUEST = Mono.error(EXCEPTIONS[MISSING_TICKER]);
+        VALIDATOR = mono -> mono.<TradeRequest>handle(RequestValidator::check)
+                                .switchIfEmpty(EMPTY_REQUEST);
+    }
+
     public static UnaryOperator<Mono<TradeRequest>> validate() {
-        return mono -> mono.filter(hasTicker())
-                           .switchIfEmpty(ApplicationExceptions.missingTicker())
-                           .filter(hasTradeAction())
-                           .switchIfEmpty(ApplicationExceptions.missingTradeAction())
-                           .filter(isValidQuantity())
-                           .switchIfEmpty(ApplicationExceptions.invalidQuantity());
+        return VALIDATOR;
     }
 
-    private static Predicate<TradeRequest> hasTicker() {
-        return dto -> Objects.nonNull(dto.ticker());
+    private static void check(TradeRequest request, SynchronousSink<TradeRequest> sink) {
+        var violations = violations(request);
+        if (violations == 0) {
+            sink.next(request);
+        } else {
+            sink.error(EXCEPTIONS[violations]);
+        }
     }
 
-    private static Predicate<TradeRequest> hasTradeAction() {
-        return dto -> Objects.nonNull(dto.action());
+    private static int violations(TradeRequest request) {
+        var violations = 0;
+        if (Objects.isNull(request.ticker())) {
+            violations |= MISSING_TICKER;
+        }
+        if (Objects.isNull(request.action())) {
+            violations |= MISSING_TRADE_ACTION;
+        }
+        if (Objects.isNull(request.quantity()) || request.quantity() <= 0) {
+            violations |= INVALID_QUANTITY;
+        }
+        return violations;
     }
 
-    private static Predicate<TradeRequest> isValidQuantity() {
-        return dto -> Objects.nonNull(dto.quantity()) && dto.quantity() > 0;
+    private static String message(int violations) {
+        var joiner = new StringJoiner(", ");
+        for (int i = 0; i < MESSAGES.length; i++) {
+            if ((violations & (1 << i)) != 0) {
+                joiner.add(MESSAGES[i]);
+            }
+        }
+        return joiner.toString();
     }
 
 }
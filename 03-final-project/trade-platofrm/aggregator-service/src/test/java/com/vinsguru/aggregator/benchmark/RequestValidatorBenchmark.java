@@ -0,0 +1,78 @@
+package com.vinsguru.aggregator.benchmark;
+
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.domain.TradeAction;
+import com.vinsguru.aggregator.dto.TradeRequest;
+import com.vinsguru.aggregator.exceptions.InvalidTradeRequestException;
+import com.vinsguru.aggregator.validator.RequestValidator;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.function.UnaryOperator;
+
+/*
+    RequestValidator vs the previous filter + switchIfEmpty chain, for a valid and an invalid request.
+    mvn test-compile, then run the main method (test classpath). Use -prof gc to see the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestValidatorBenchmark {
+
+    private final TradeRequest validRequest = new TradeRequest(Ticker.GOOGLE, TradeAction.BUY, 2);
+    private final TradeRequest invalidRequest = new TradeRequest(Ticker.GOOGLE, TradeAction.BUY, -2);
+    private final UnaryOperator<Mono<TradeRequest>> singlePass = RequestValidator.validate();
+    private final UnaryOperator<Mono<TradeRequest>> operatorChain = operatorChain();
+
+    @Benchmark
+    public void singlePassValid(Blackhole blackhole) {
+        validate(this.singlePass, this.validRequest, blackhole);
+    }
+
+    @Benchmark
+    public void operatorChainValid(Blackhole blackhole) {
+        validate(this.operatorChain, this.validRequest, blackhole);
+    }
+
+    @Benchmark
+    public void singlePassInvalid(Blackhole blackhole) {
+        validate(this.singlePass, this.invalidRequest, blackhole);
+    }
+
+    @Benchmark
+    public void operatorChainInvalid(Blackhole blackhole) {
+        validate(this.operatorChain, this.invalidRequest, blackhole);
+    }
+
+    private static void validate(UnaryOperator<Mono<TradeRequest>> validator, TradeRequest request, Blackhole blackhole) {
+        Mono.just(request)
+            .transform(validator)
+            .subscribe(blackhole::consume, blackhole::consume);
+    }
+
+    // the previous implementation
+    private static UnaryOperator<Mono<TradeRequest>> operatorChain() {
+        return mono -> mono.filter(dto -> Objects.nonNull(dto.ticker()))
+                           .switchIfEmpty(Mono.error(new InvalidTradeRequestException("Ticker is required")))
+                           .filter(dto -> Objects.nonNull(dto.action()))
+                           .switchIfEmpty(Mono.error(new InvalidTradeRequestException("Trade action is required")))
+                           .filter(dto -> Objects.nonNull(dto.quantity()) && dto.quantity() > 0)
+                           .switchIfEmpty(Mono.error(new InvalidTradeRequestException("Quantity should be > 0")));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder().include(RequestValidatorBenchmark.class.getSimpleName())
+                                          .build();
+        new Runner(options).run();
+    }
+
+}
@@ -0,0 +1,79 @@
+package com.vinsguru.aggregator.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.domain.TradeAction;
+import com.vinsguru.aggregator.dto.CustomerInformation;
+import com.vinsguru.aggregator.dto.Holding;
+import com.vinsguru.aggregator.dto.StockTradeResponse;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+    JSON vs Smile: serialization and deserialization of the records exchanged with the customer service.
+    mvn test-compile, then run the main method (test classpath). Use -prof gc to see the allocations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    @Param({"json", "smile"})
+    public String format;
+
+    private final CustomerInformation customerInformation = new CustomerInformation(1, "Sam", 10000, List.of(
+            new Holding(Ticker.APPLE, 10),
+            new Holding(Ticker.GOOGLE, 5),
+            new Holding(Ticker.MICROSOFT, 20)
+    ));
+    private final StockTradeResponse stockTradeResponse = new StockTradeResponse(1, Ticker.GOOGLE, 110, 2, TradeAction.BUY, 220, 9780);
+    private ObjectMapper mapper;
+    private byte[] customerInformationBytes;
+    private byte[] stockTradeResponseBytes;
+
+    @Setup
+    public void setup() throws IOException {
+        this.mapper = "smile".equals(this.format)
+                ? Jackson2ObjectMapperBuilder.smile().build()
+                : Jackson2ObjectMapperBuilder.json().build();
+        this.customerInformationBytes = this.mapper.writeValueAsBytes(this.customerInformation);
+        this.stockTradeResponseBytes = this.mapper.writeValueAsBytes(this.stockTradeResponse);
+    }
+
+    @Benchmark
+    public byte[] writeCustomerInformation() throws IOException {
+        return this.mapper.writeValueAsBytes(this.customerInformation);
+    }
+
+    @Benchmark
+    public CustomerInformation readCustomerInformation() throws IOException {
+        return this.mapper.readValue(this.customerInformationBytes, CustomerInformation.class);
+    }
+
+    @Benchmark
+    public byte[] writeStockTradeResponse() throws IOException {
+        return this.mapper.writeValueAsBytes(this.stockTradeResponse);
+    }
+
+    @Benchmark
+    public StockTradeResponse readStockTradeResponse() throws IOException {
+        return this.mapper.readValue(this.stockTradeResponseBytes, StockTradeResponse.class);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        var options = new OptionsBuilder().include(WireFormatBenchmark.class.getSimpleName())
+                                          .build();
+        new Runner(options).run();
+    }
+
+}
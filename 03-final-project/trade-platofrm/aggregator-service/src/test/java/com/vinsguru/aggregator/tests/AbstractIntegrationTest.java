@@ -18,7 +18,11 @@ import java.nio.file.Path;
 @AutoConfigureWebTestClient
 @SpringBootTest(properties = {
 		"customer.service.url=http://localhost:${mockServerPort}",
-		"stock.service.url=http://localhost:${mockServerPort}"
+		"stock.service.url=http://localhost:${mockServerPort}",
+		"stock.price-snapshot.keep-connected=false",
+		"stock.price-snapshot.max-age=0s",
+		"customer.service.client.hedge=false",
+		"stock.service.client.hedge=false"
 })
 abstract class AbstractIntegrationTest {
 
@@ -0,0 +1,49 @@
+package com.vinsguru.aggregator.tests;
+
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.domain.TradeAction;
+import com.vinsguru.aggregator.dto.TradeRequest;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.verify.VerificationTimes;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@TestPropertySource(properties = {
+        "stock.service.client.retry-max-attempts=0",
+        "stock.service.client.circuit-breaker-minimum-calls=2"
+})
+public class CircuitBreakerTest extends AbstractIntegrationTest {
+
+    @Test
+    public void stockServiceUnavailable() {
+        // mock stock-service failure
+        mockServerClient
+                .when(HttpRequest.request("/stock/AMAZON"))
+                .respond(HttpResponse.response().withStatusCode(500));
+
+        // the circuit opens after 2 failures
+        var tradeRequest = new TradeRequest(Ticker.AMAZON, TradeAction.BUY, 2);
+        for (int i = 0; i < 2; i++) {
+            postTrade(tradeRequest, HttpStatus.INTERNAL_SERVER_ERROR);
+        }
+
+        // then the calls fail fast without reaching the stock-service
+        postTrade(tradeRequest, HttpStatus.SERVICE_UNAVAILABLE)
+                .expectBody()
+                .jsonPath("$.detail").isEqualTo("stock-service is not available at the moment. Please try again later")
+                .jsonPath("$.title").isEqualTo("Service Unavailable");
+        mockServerClient.verify(HttpRequest.request("/stock/AMAZON"), VerificationTimes.exactly(2));
+    }
+
+    private WebTestClient.ResponseSpec postTrade(TradeRequest tradeRequest, HttpStatus expectedStatus) {
+        return this.client.post()
+                          .uri("/customers/1/trade")
+                          .bodyValue(tradeRequest)
+                          .exchange()
+                          .expectStatus().isEqualTo(expectedStatus);
+    }
+
+}
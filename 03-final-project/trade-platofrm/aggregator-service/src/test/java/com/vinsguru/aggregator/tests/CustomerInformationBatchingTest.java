@@ -0,0 +1,54 @@
+package com.vinsguru.aggregator.tests;
+
+import com.vinsguru.aggregator.dto.CustomerInformation;
+import com.vinsguru.aggregator.exceptions.CustomerNotFoundException;
+import com.vinsguru.aggregator.service.CustomerInformationLoader;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.model.MediaType;
+import org.mockserver.verify.VerificationTimes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+// the lookups of distinct customers within the batch window are merged into 1 call to the batch endpoint
+@TestPropertySource(properties = "customer.information.batch-window=100ms")
+public class CustomerInformationBatchingTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private CustomerInformationLoader customerInformationLoader;
+
+    @Test
+    public void lookupsAreBatched() {
+        // given: customer 3 is unknown, so the customer service leaves it out
+        var responseBody = this.resourceToString("customer-service/customer-information-batch-200.jsonl");
+        mockServerClient
+                .when(HttpRequest.request("/customers/batch").withMethod("POST"))
+                .respond(
+                        HttpResponse.response(responseBody)
+                                    .withStatusCode(200)
+                                    .withContentType(MediaType.parse("application/x-ndjson"))
+                );
+
+        // then
+        Flux.just(1, 2, 3)
+            .flatMap(id -> this.customerInformationLoader.get(id)
+                                                         .map(CustomerInformation::name)
+                                                         .onErrorResume(CustomerNotFoundException.class, ex -> Mono.just("not found"))
+                                                         .map(name -> Map.entry(id, name)))
+            .collectMap(Map.Entry::getKey, Map.Entry::getValue)
+            .as(StepVerifier::create)
+            .assertNext(names -> Assertions.assertEquals(Map.of(1, "Sam", 2, "Mike", 3, "not found"), names))
+            .expectComplete()
+            .verify();
+        mockServerClient.verify(HttpRequest.request("/customers/batch").withMethod("POST"), VerificationTimes.exactly(1));
+        mockServerClient.verify(HttpRequest.request("/customers/.*").withMethod("GET"), VerificationTimes.never());
+    }
+
+}
@@ -1,20 +1,32 @@
 package com.vinsguru.aggregator.tests;
 
+import com.vinsguru.aggregator.dto.CustomerInformation;
+import com.vinsguru.aggregator.service.CustomerInformationLoader;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
+import org.mockserver.model.Delay;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.model.HttpResponse;
 import org.mockserver.model.MediaType;
+import org.mockserver.verify.VerificationTimes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
 
+import java.util.List;
 import java.util.Objects;
 
 public class CustomerInformationTest extends AbstractIntegrationTest {
 
     private static final Logger log = LoggerFactory.getLogger(CustomerInformationTest.class);
 
+    @Autowired
+    private CustomerInformationLoader customerInformationLoader;
+
     @Test
     public void customerInformation() {
         // given
@@ -39,6 +51,60 @@ public class CustomerInformationTest extends AbstractIntegrationTest {
                 .jsonPath("$.title").isNotEmpty();
     }
 
+    @Test
+    public void customerInformationBatch() {
+        // given
+        var responseBody = this.resourceToString("customer-service/customer-information-batch-200.jsonl");
+        mockServerClient
+                .when(HttpRequest.request("/customers/batch").withMethod("POST"))
+                .respond(
+                        HttpResponse.response(responseBody)
+                                    .withStatusCode(200)
+                                    .withContentType(MediaType.parse("application/x-ndjson"))
+                );
+
+        // then
+        this.client.post()
+                   .uri("/customers/batch")
+                   .accept(org.springframework.http.MediaType.APPLICATION_NDJSON)
+                   .bodyValue(List.of(1, 2))
+                   .exchange()
+                   .expectStatus().is2xxSuccessful()
+                   .returnResult(CustomerInformation.class)
+                   .getResponseBody()
+                   .doOnNext(c -> log.info("{}", c))
+                   .as(StepVerifier::create)
+                   .assertNext(c -> Assertions.assertEquals("Sam", c.name()))
+                   .assertNext(c -> Assertions.assertEquals("Mike", c.name()))
+                   .expectComplete()
+                   .verify();
+    }
+
+    @Test
+    public void concurrentRequestsAreCoalesced() {
+        // given
+        var responseBody = this.resourceToString("customer-service/customer-information-200.json");
+        mockServerClient
+                .when(HttpRequest.request("/customers/1"))
+                .respond(
+                        HttpResponse.response(responseBody)
+                                    .withStatusCode(200)
+                                    .withContentType(MediaType.APPLICATION_JSON)
+                                    .withDelay(Delay.milliseconds(500))
+                );
+
+        // then
+        // 10 concurrent requests => 1 call to the customer service
+        // flatMap subscribes to all of them before the delayed response arrives, regardless of the number of cores
+        Flux.range(1, 10)
+            .flatMap(i -> this.customerInformationLoader.get(1))
+            .as(StepVerifier::create)
+            .expectNextCount(10)
+            .expectComplete()
+            .verify();
+        mockServerClient.verify(HttpRequest.request("/customers/1"), VerificationTimes.exactly(1));
+    }
+
     private void mockCustomerInformation(String path, int responseCode){
         var responseBody = this.resourceToString(path);
         mockServerClient
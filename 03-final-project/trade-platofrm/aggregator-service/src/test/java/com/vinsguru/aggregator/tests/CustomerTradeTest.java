@@ -3,13 +3,17 @@ package com.vinsguru.aggregator.tests;
 import com.vinsguru.aggregator.domain.Ticker;
 import com.vinsguru.aggregator.domain.TradeAction;
 import com.vinsguru.aggregator.dto.TradeRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.model.HttpResponse;
 import org.mockserver.model.MediaType;
 import org.mockserver.model.RegexBody;
+import org.mockserver.verify.VerificationTimes;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 
@@ -19,6 +23,9 @@ public class CustomerTradeTest extends AbstractIntegrationTest {
 
     private static final Logger log = LoggerFactory.getLogger(CustomerTradeTest.class);
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     public void tradeSuccess(){
         // mock customer-service trade success response
@@ -30,6 +37,24 @@ public class CustomerTradeTest extends AbstractIntegrationTest {
                 .jsonPath("$.totalPrice").isEqualTo(220);
     }
 
+    @Test
+    public void tradeMetrics(){
+        mockCustomerTrade("customer-service/customer-trade-200.json", 200);
+
+        var tradeRequest = new TradeRequest(Ticker.GOOGLE, TradeAction.BUY, 2);
+        postTrade(tradeRequest, HttpStatus.OK);
+
+        // each stage of the trade
+        for (var name : new String[]{"trade", "trade.price-lookup", "trade.customer-service"}) {
+            Assertions.assertNotNull(this.meterRegistry.find(name + ".flow.duration").timer(), name);
+        }
+        // the downstream calls, by uri template
+        for (var name : new String[]{"client.response", "client.body"}) {
+            Assertions.assertNotNull(this.meterRegistry.find(name).tags("client", "customer-service", "uri", "/customers/{customerId}/trade").timer(), name);
+            Assertions.assertNotNull(this.meterRegistry.find(name).tags("client", "stock-service", "uri", "/stock/{ticker}").timer(), name);
+        }
+    }
+
     @Test
     public void tradeFailure(){
         // mock customer-service bad-request response
@@ -40,6 +65,38 @@ public class CustomerTradeTest extends AbstractIntegrationTest {
                 .jsonPath("$.detail").isEqualTo("Customer [id=1] does not have enough funds to complete the transaction");
     }
 
+    @Test
+    public void idempotentTrade(){
+        mockCustomerTrade("customer-service/customer-trade-200.json", 200);
+
+        // the key is passed on to the customer service, where the duplicate is answered without executing the trade again
+        var tradeRequest = new TradeRequest(Ticker.GOOGLE, TradeAction.BUY, 2);
+        for (int i = 0; i < 2; i++) {
+            this.client.post()
+                       .uri("/customers/1/trade")
+                       .header("Idempotency-Key", "trade-1")
+                       .bodyValue(tradeRequest)
+                       .exchange()
+                       .expectStatus().isOk()
+                       .expectBody()
+                       .jsonPath("$.balance").isEqualTo(9780);
+        }
+        mockServerClient.verify(
+                HttpRequest.request("/customers/1/trade").withHeader("Idempotency-Key", "trade-1"),
+                VerificationTimes.exactly(2)
+        );
+    }
+
+    @Test
+    public void idempotencyKeyReused(){
+        mockCustomerTrade("customer-service/customer-trade-422.json", 422);
+
+        var tradeRequest = new TradeRequest(Ticker.GOOGLE, TradeAction.BUY, 2);
+        postTrade(tradeRequest, HttpStatus.UNPROCESSABLE_ENTITY)
+                .jsonPath("$.detail").isEqualTo("Idempotency-Key [trade-1] was already used for a different trade")
+                .jsonPath("$.title").isEqualTo("Idempotency Key Reused");
+    }
+
     @Test
     public void inputValidation(){
         // no need to mock
@@ -55,6 +112,11 @@ public class CustomerTradeTest extends AbstractIntegrationTest {
         postTrade(invalidQuantity, HttpStatus.BAD_REQUEST)
                 .jsonPath("$.detail").isEqualTo("Quantity should be > 0");
 
+        // all the violations at once
+        var invalidRequest = new TradeRequest(null, null, 0);
+        postTrade(invalidRequest, HttpStatus.BAD_REQUEST)
+                .jsonPath("$.detail").isEqualTo("Ticker is required, Trade action is required, Quantity should be > 0");
+
     }
 
     private void mockCustomerTrade(String path, int responseCode){
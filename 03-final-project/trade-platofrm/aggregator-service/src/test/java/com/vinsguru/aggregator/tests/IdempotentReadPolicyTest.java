@@ -0,0 +1,96 @@
+package com.vinsguru.aggregator.tests;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.Delay;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.model.MediaType;
+import org.mockserver.verify.VerificationTimes;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Objects;
+
+// hedging is enabled for the customer service, with a hedge delay of 100ms until there are enough samples
+@TestPropertySource(properties = {
+        "customer.service.client.hedge=true",
+        "customer.service.client.hedge-min-delay=10ms",
+        "customer.service.client.hedge-max-delay=100ms",
+        "customer.service.client.retry-max-attempts=2",
+        "customer.service.client.retry-min-backoff=10ms"
+})
+public class IdempotentReadPolicyTest extends AbstractIntegrationTest {
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void slowRequestIsHedged() {
+        // given: the 1st request is slow, the next ones are not
+        mockCustomerInformation(Times.once(), HttpResponse.response(customerInformation()).withDelay(Delay.seconds(3)));
+        mockCustomerInformation(Times.unlimited(), HttpResponse.response(customerInformation()));
+        var hedgeRequests = count("client.hedge.requests");
+        var hedgeWins = count("client.hedge.wins");
+
+        // then: the hedge request answers, long before the slow one
+        var start = System.nanoTime();
+        getCustomerInformation(HttpStatus.OK);
+        Assertions.assertTrue(System.nanoTime() - start < 2_000_000_000L);
+        Assertions.assertEquals(1, count("client.hedge.requests") - hedgeRequests);
+        Assertions.assertEquals(1, count("client.hedge.wins") - hedgeWins);
+        mockServerClient.verify(HttpRequest.request("/customers/1"), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void serverErrorIsRetried() {
+        // given: the 1st request fails
+        mockCustomerInformation(Times.once(), HttpResponse.response().withStatusCode(500));
+        mockCustomerInformation(Times.unlimited(), HttpResponse.response(customerInformation()));
+        var retries = count("client.retries");
+
+        // then
+        getCustomerInformation(HttpStatus.OK);
+        Assertions.assertEquals(1, count("client.retries") - retries);
+        mockServerClient.verify(HttpRequest.request("/customers/1"), VerificationTimes.exactly(2));
+    }
+
+    @Test
+    public void clientErrorIsNotRetried() {
+        // given
+        mockCustomerInformation(Times.unlimited(), HttpResponse.response(this.resourceToString("customer-service/customer-information-404.json"))
+                                                               .withStatusCode(404));
+        var retries = count("client.retries");
+
+        // then
+        getCustomerInformation(HttpStatus.NOT_FOUND);
+        Assertions.assertEquals(0, count("client.retries") - retries);
+        mockServerClient.verify(HttpRequest.request("/customers/1"), VerificationTimes.exactly(1));
+    }
+
+    private void mockCustomerInformation(Times times, HttpResponse response) {
+        mockServerClient
+                .when(HttpRequest.request("/customers/1"), times)
+                .respond(response.withContentType(MediaType.APPLICATION_JSON));
+    }
+
+    private String customerInformation() {
+        return this.resourceToString("customer-service/customer-information-200.json");
+    }
+
+    private void getCustomerInformation(HttpStatus expectedStatus) {
+        this.client.get()
+                   .uri("/customers/1")
+                   .exchange()
+                   .expectStatus().isEqualTo(expectedStatus);
+    }
+
+    private double count(String name) {
+        var counter = this.meterRegistry.find(name).tag("client", "customer-service").counter();
+        return Objects.isNull(counter) ? 0 : counter.count();
+    }
+
+}
@@ -0,0 +1,142 @@
+package com.vinsguru.aggregator.tests;
+
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.domain.TradeAction;
+import com.vinsguru.aggregator.dto.TradeRequest;
+import com.vinsguru.aggregator.service.CustomerPortfolioService;
+import com.vinsguru.aggregator.service.PortfolioValuationService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.model.MediaType;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import reactor.test.StepVerifier;
+
+import java.util.Objects;
+
+public class PortfolioValuationTest extends AbstractIntegrationTest {
+
+    private static final Logger log = LoggerFactory.getLogger(PortfolioValuationTest.class);
+
+    @Autowired
+    private PortfolioValuationService portfolioValuationService;
+
+    @Autowired
+    private CustomerPortfolioService customerPortfolioService;
+
+    @Test
+    public void valuation() {
+        // given
+        mock("/customers/1", "customer-service/customer-information-200.json", 200);
+        mock("/stock/GOOGLE", "stock-service/stock-price-200.json", 200);
+
+        // then: 10000 + 2 GOOGLE * 110
+        this.client.get()
+                   .uri("/customers/1/valuation")
+                   .exchange()
+                   .expectStatus().isOk()
+                   .expectBody()
+                   .consumeWith(e -> log.info("{}", new String(Objects.requireNonNull(e.getResponseBody()))))
+                   .jsonPath("$.holdings[0].ticker").isEqualTo("GOOGLE")
+                   .jsonPath("$.holdings[0].value").isEqualTo(220)
+                   .jsonPath("$.holdingsValue").isEqualTo(220)
+                   .jsonPath("$.totalValue").isEqualTo(10220);
+    }
+
+    @Test
+    public void customerNotFound() {
+        // given
+        mock("/customers/1", "customer-service/customer-information-404.json", 404);
+
+        // then
+        this.client.get()
+                   .uri("/customers/1/valuation")
+                   .exchange()
+                   .expectStatus().isEqualTo(HttpStatus.NOT_FOUND)
+                   .expectBody()
+                   .jsonPath("$.detail").isEqualTo("Customer [id=1] is not found");
+    }
+
+    @Test
+    public void valuationStream() {
+        // given
+        mock("/customers/1", "customer-service/customer-information-200.json", 200);
+        mock("/stock/GOOGLE", "stock-service/stock-price-200.json", 200);
+        mockPriceStream(this.resourceToString("stock-service/stock-price-stream-200.jsonl"));
+
+        // then: the initial valuation, then 1 per GOOGLE price change. total = 10000 + 2 * price
+        this.portfolioValuationService.valuationStream(1)
+                                      .doOnNext(v -> log.info("{}", v))
+                                      .as(StepVerifier::create)
+                                      .assertNext(v -> Assertions.assertEquals(10220, v.totalValue()))
+                                      .assertNext(v -> {
+                                          Assertions.assertEquals(53, v.holdings().getFirst().price());
+                                          Assertions.assertEquals(106, v.holdingsValue());
+                                          Assertions.assertEquals(10106, v.totalValue());
+                                      })
+                                      .assertNext(v -> Assertions.assertEquals(10108, v.totalValue()))
+                                      .assertNext(v -> Assertions.assertEquals(10110, v.totalValue()))
+                                      .thenCancel()
+                                      .verify();
+    }
+
+    @Test
+    public void valuationStreamIsRefreshedByTrades() {
+        // given: 2 GOOGLE before the trade, 4 after
+        mockServerClient
+                .when(HttpRequest.request("/customers/1"), Times.once())
+                .respond(HttpResponse.response(this.resourceToString("customer-service/customer-information-200.json"))
+                                     .withContentType(MediaType.APPLICATION_JSON));
+        mockServerClient
+                .when(HttpRequest.request("/customers/1"))
+                .respond(HttpResponse.response("""
+                                                       {"id": 1, "name": "Sam", "balance": 9780, "holdings": [{"ticker": "GOOGLE", "quantity": 4}]}
+                                                       """)
+                                     .withContentType(MediaType.APPLICATION_JSON));
+        mock("/stock/GOOGLE", "stock-service/stock-price-200.json", 200);
+        mock("/customers/1/trade", "customer-service/customer-trade-200.json", 200);
+        mockPriceStream("");
+
+        // then
+        var buyRequest = new TradeRequest(Ticker.GOOGLE, TradeAction.BUY, 2);
+        this.portfolioValuationService.valuationStream(1)
+                                      .doOnNext(v -> log.info("{}", v))
+                                      .as(StepVerifier::create)
+                                      .assertNext(v -> Assertions.assertEquals(2, v.holdings().getFirst().quantity()))
+                                      .then(() -> this.customerPortfolioService.trade(1, buyRequest).block())
+                                      .assertNext(v -> {
+                                          Assertions.assertEquals(9780, v.balance());
+                                          Assertions.assertEquals(4, v.holdings().getFirst().quantity());
+                                          Assertions.assertEquals(440, v.holdingsValue());
+                                      })
+                                      .thenCancel()
+                                      .verify();
+    }
+
+    private void mock(String path, String responseBodyPath, int responseCode) {
+        var responseBody = this.resourceToString(responseBodyPath);
+        mockServerClient
+                .when(HttpRequest.request(path))
+                .respond(
+                        HttpResponse.response(responseBody)
+                                    .withStatusCode(responseCode)
+                                    .withContentType(MediaType.APPLICATION_JSON)
+                );
+    }
+
+    private void mockPriceStream(String responseBody) {
+        mockServerClient
+                .when(HttpRequest.request("/stock/price-stream"))
+                .respond(
+                        HttpResponse.response(responseBody)
+                                    .withStatusCode(200)
+                                    .withContentType(MediaType.parse("application/x-ndjson"))
+                );
+    }
+
+}
@@ -1,6 +1,8 @@
 package com.vinsguru.aggregator.tests;
 
+import com.vinsguru.aggregator.dto.Candle;
 import com.vinsguru.aggregator.dto.PriceUpdate;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.mockserver.model.HttpRequest;
@@ -8,39 +10,117 @@ import org.mockserver.model.HttpResponse;
 import org.mockserver.model.MediaType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import reactor.core.publisher.Flux;
 import reactor.test.StepVerifier;
 
+import java.time.LocalDateTime;
+
 public class StockPriceStreamTest extends AbstractIntegrationTest {
 
     private static final Logger log = LoggerFactory.getLogger(StockPriceStreamTest.class);
 
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     public void priceStream() {
-        // mock stock-service streaming response
-        var responseBody = this.resourceToString("stock-service/stock-price-stream-200.jsonl");
-        mockServerClient
-                .when(HttpRequest.request("/stock/price-stream"))
-                .respond(
-                        HttpResponse.response(responseBody)
-                                    .withStatusCode(200)
-                                    .withContentType(MediaType.parse("application/x-ndjson"))
-                );
+        mockPriceStream();
 
         // we should get the streaming response via aggregator-service
+        getPriceStream("/stock/price-stream")
+                .as(StepVerifier::create)
+                .assertNext(p -> Assertions.assertEquals(53, p.price()))
+                .assertNext(p -> Assertions.assertEquals(54, p.price()))
+                .assertNext(p -> Assertions.assertEquals(55, p.price()))
+                .expectComplete()
+                .verify();
+
+        // the body of a stream is not a response time
+        var uri = "/stock/price-stream";
+        Assertions.assertNotNull(this.meterRegistry.find("client.response").tag("uri", uri).timer());
+        Assertions.assertNull(this.meterRegistry.find("client.body").tag("uri", uri).timer());
+    }
+
+    @Test
+    public void filteredPriceStream() {
+        mockPriceStream();
+
+        // no GOOGLE updates
+        getPriceStream("/stock/price-stream?tickers=APPLE,AMAZON")
+                .as(StepVerifier::create)
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    public void conflatedPriceStream() {
+        mockPriceStream();
+
+        // the 3 updates arrive within the same window. only the latest is sent
+        getPriceStream("/stock/price-stream?tickers=GOOGLE&maxRateMs=1000")
+                .as(StepVerifier::create)
+                .assertNext(p -> Assertions.assertEquals(55, p.price()))
+                .expectComplete()
+                .verify();
+    }
+
+    @Test
+    public void invalidMaxRate() {
+        // the endpoint only produces an event stream, which can not carry the problem detail. the status can
         this.client.get()
-                   .uri("/stock/price-stream")
+                   .uri("/stock/price-stream?maxRateMs=-1")
                    .accept(org.springframework.http.MediaType.TEXT_EVENT_STREAM)
                    .exchange()
+                   .expectStatus().isBadRequest();
+    }
+
+    @Test
+    public void candleStream() {
+        mockPriceStream();
+
+        // 1 update per second. a candle is closed by the update of the next second
+        this.client.get()
+                   .uri("/stock/candles/GOOGLE?interval=ONE_SECOND")
+                   .accept(org.springframework.http.MediaType.APPLICATION_NDJSON)
+                   .exchange()
                    .expectStatus().is2xxSuccessful()
-                   .returnResult(PriceUpdate.class)
+                   .returnResult(Candle.class)
                    .getResponseBody()
-                   .doOnNext(price -> log.info("{}", price))
+                   .doOnNext(candle -> log.info("{}", candle))
                    .as(StepVerifier::create)
-                   .assertNext(p -> Assertions.assertEquals(53, p.price()))
-                   .assertNext(p -> Assertions.assertEquals(54, p.price()))
-                   .assertNext(p -> Assertions.assertEquals(55, p.price()))
+                   .assertNext(c -> {
+                       Assertions.assertEquals(LocalDateTime.parse("2026-01-01T12:00:01"), c.start());
+                       Assertions.assertEquals(53, c.open());
+                       Assertions.assertEquals(53, c.close());
+                       Assertions.assertEquals(1, c.ticks());
+                   })
+                   .assertNext(c -> Assertions.assertEquals(54, c.close()))
                    .expectComplete()
                    .verify();
     }
 
+    private void mockPriceStream() {
+        // mock stock-service streaming response
+        var responseBody = this.resourceToString("stock-service/stock-price-stream-200.jsonl");
+        mockServerClient
+                .when(HttpRequest.request("/stock/price-stream"))
+                .respond(
+                        HttpResponse.response(responseBody)
+                                    .withStatusCode(200)
+                                    .withContentType(MediaType.parse("application/x-ndjson"))
+                );
+    }
+
+    private Flux<PriceUpdate> getPriceStream(String uri) {
+        return this.client.get()
+                          .uri(uri)
+                          .accept(org.springframework.http.MediaType.TEXT_EVENT_STREAM)
+                          .exchange()
+                          .expectStatus().is2xxSuccessful()
+                          .returnResult(PriceUpdate.class)
+                          .getResponseBody()
+                          .doOnNext(price -> log.info("{}", price));
+    }
+
 }
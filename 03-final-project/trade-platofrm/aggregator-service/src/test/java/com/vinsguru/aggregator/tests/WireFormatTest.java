@@ -0,0 +1,67 @@
+package com.vinsguru.aggregator.tests;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.vinsguru.aggregator.domain.Ticker;
+import com.vinsguru.aggregator.domain.TradeAction;
+import com.vinsguru.aggregator.dto.CustomerInformation;
+import com.vinsguru.aggregator.dto.Holding;
+import com.vinsguru.aggregator.dto.StockTradeRequest;
+import com.vinsguru.aggregator.dto.StockTradeResponse;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockserver.model.BinaryBody;
+import org.mockserver.model.HttpRequest;
+import org.mockserver.model.HttpResponse;
+import org.mockserver.model.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.List;
+
+// the aggregator talks Smile to the customer service. see WireFormatBenchmark for the timings
+@TestPropertySource(properties = "customer.service.client.wire-format=smile")
+public class WireFormatTest extends AbstractIntegrationTest {
+
+    private static final String SMILE = "application/x-jackson-smile";
+
+    private final ObjectMapper json = Jackson2ObjectMapperBuilder.json().build();
+    private final ObjectMapper smile = Jackson2ObjectMapperBuilder.smile().build();
+
+    @Test
+    public void roundTrip() throws Exception {
+        var values = List.of(
+                new StockTradeRequest(Ticker.GOOGLE, 110, 2, TradeAction.BUY),
+                new StockTradeResponse(1, Ticker.GOOGLE, 110, 2, TradeAction.BUY, 220, 9780),
+                new CustomerInformation(1, "Sam", 10000, List.of(new Holding(Ticker.APPLE, 10), new Holding(Ticker.GOOGLE, 5)))
+        );
+        for (var value : values) {
+            var bytes = this.smile.writeValueAsBytes(value);
+            Assertions.assertEquals(value, this.smile.readValue(bytes, value.getClass()));
+            Assertions.assertTrue(bytes.length < this.json.writeValueAsBytes(value).length);
+        }
+    }
+
+    @Test
+    public void smileEndToEnd() throws Exception {
+        // given: the customer service answers in Smile, only when it is asked for
+        var customerInformation = this.json.readValue(this.resourceToString("customer-service/customer-information-200.json"), CustomerInformation.class);
+        mockServerClient
+                .when(HttpRequest.request("/customers/1").withHeader("Accept", ".*" + SMILE + ".*"))
+                .respond(HttpResponse.response()
+                                     .withStatusCode(200)
+                                     .withBody(BinaryBody.binary(this.smile.writeValueAsBytes(customerInformation), MediaType.parse(SMILE))));
+
+        // then: decoded by the aggregator client, and sent to the caller as Smile too
+        var body = this.client.get()
+                              .uri("/customers/1")
+                              .accept(org.springframework.http.MediaType.parseMediaType(SMILE))
+                              .exchange()
+                              .expectStatus().isOk()
+                              .expectHeader().contentType(SMILE)
+                              .expectBody(byte[].class)
+                              .returnResult()
+                              .getResponseBody();
+        Assertions.assertEquals(customerInformation, this.smile.readValue(body, CustomerInformation.class));
+    }
+
+}
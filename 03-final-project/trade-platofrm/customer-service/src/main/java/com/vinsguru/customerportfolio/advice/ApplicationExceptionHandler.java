@@ -1,8 +1,10 @@
 package com.vinsguru.customerportfolio.advice;
 
 import com.vinsguru.customerportfolio.exceptions.CustomerNotFoundException;
+import com.vinsguru.customerportfolio.exceptions.IdempotencyKeyReusedException;
 import com.vinsguru.customerportfolio.exceptions.InsufficientBalanceException;
 import com.vinsguru.customerportfolio.exceptions.InsufficientSharesException;
+import com.vinsguru.customerportfolio.exceptions.InvalidRequestException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ProblemDetail;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -38,6 +40,34 @@ public class ApplicationExceptionHandler {
         });
     }
 
+    @ExceptionHandler(InvalidRequestException.class)
+    public ProblemDetail handleException(InvalidRequestException ex) {
+        return build(HttpStatus.BAD_REQUEST, ex, problem -> {
+            problem.setType(URI.create("http://example.com/problems/invalid-request"));
+            problem.setTitle("Invalid Request");
+        });
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    public ProblemDetail handleException(IdempotencyKeyReusedException ex) {
+        return build(HttpStatus.UNPROCESSABLE_ENTITY, ex, problem -> {
+            problem.setType(URI.create("http://example.com/problems/idempotency-key-reused"));
+            problem.setTitle("Idempotency Key Reused");
+        });
+    }
+
+    // for the streaming endpoints where the error is a part of the response body
+    public ProblemDetail toProblemDetail(Throwable ex) {
+        return switch (ex) {
+            case CustomerNotFoundException e -> this.handleException(e);
+            case InsufficientBalanceException e -> this.handleException(e);
+            case InsufficientSharesException e -> this.handleException(e);
+            case InvalidRequestException e -> this.handleException(e);
+            case IdempotencyKeyReusedException e -> this.handleException(e);
+            default -> ProblemDetail.forStatusAndDetail(HttpStatus.INTERNAL_SERVER_ERROR, ex.getMessage());
+        };
+    }
+
     private ProblemDetail build(HttpStatus status, Exception ex, Consumer<ProblemDetail> consumer) {
         var problem = ProblemDetail.forStatusAndDetail(status, ex.getMessage());
         consumer.accept(problem);
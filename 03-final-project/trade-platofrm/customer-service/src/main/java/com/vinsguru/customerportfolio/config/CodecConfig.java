@@ -0,0 +1,34 @@
+package com.vinsguru.customerportfolio.config;
+
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.boot.web.codec.CodecCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.codec.json.Jackson2SmileDecoder;
+import org.springframework.http.codec.json.Jackson2SmileEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.util.MimeType;
+
+/*
+    Accepts and returns Smile (binary JSON, application/x-jackson-smile) when the aggregator asks for it
+    (customer.service.client.wire-format=smile) via Content-Type / Accept. JSON otherwise.
+ */
+@Configuration
+public class CodecConfig {
+
+    // without explicit mime types, the Jackson codecs fall back to the JSON ones
+    private static final MimeType[] SMILE_MIME_TYPES = {
+            new MimeType("application", "x-jackson-smile"),
+            new MimeType("application", "*+x-jackson-smile")
+    };
+
+    @Bean
+    public CodecCustomizer smileCodecCustomizer(Jackson2ObjectMapperBuilder builder) {
+        var mapper = builder.factory(new SmileFactory()).build();
+        return configurer -> {
+            configurer.defaultCodecs().jackson2SmileDecoder(new Jackson2SmileDecoder(mapper, SMILE_MIME_TYPES));
+            configurer.defaultCodecs().jackson2SmileEncoder(new Jackson2SmileEncoder(mapper, SMILE_MIME_TYPES));
+        };
+    }
+
+}
@@ -1,23 +1,43 @@
 package com.vinsguru.customerportfolio.controller;
 
 import com.vinsguru.customerportfolio.dto.CustomerInformation;
+import com.vinsguru.customerportfolio.dto.CustomerStockTradeRequest;
+import com.vinsguru.customerportfolio.dto.CustomerStockTradeResponse;
 import com.vinsguru.customerportfolio.dto.StockTradeRequest;
 import com.vinsguru.customerportfolio.dto.StockTradeResponse;
+import com.vinsguru.customerportfolio.dto.TradeLedgerEntry;
+import com.vinsguru.customerportfolio.service.BulkTradeService;
 import com.vinsguru.customerportfolio.service.CustomerService;
-import com.vinsguru.customerportfolio.service.TradeService;
+import com.vinsguru.customerportfolio.service.IdempotencyStore;
+import com.vinsguru.customerportfolio.service.TradeLedgerService;
+import com.vinsguru.customerportfolio.service.TradeSequencer;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+
 @RestController
 @RequestMapping("customers")
 public class CustomerController {
 
     private final CustomerService customerService;
-    private final TradeService tradeService;
+    private final TradeSequencer tradeSequencer;
+    private final BulkTradeService bulkTradeService;
+    private final IdempotencyStore idempotencyStore;
+    private final TradeLedgerService tradeLedgerService;
 
-    public CustomerController(CustomerService customerService, TradeService tradeService) {
+    public CustomerController(CustomerService customerService,
+                              TradeSequencer tradeSequencer,
+                              BulkTradeService bulkTradeService,
+                              IdempotencyStore idempotencyStore,
+                              TradeLedgerService tradeLedgerService) {
         this.customerService = customerService;
-        this.tradeService = tradeService;
+        this.tradeSequencer = tradeSequencer;
+        this.bulkTradeService = bulkTradeService;
+        this.idempotencyStore = idempotencyStore;
+        this.tradeLedgerService = tradeLedgerService;
     }
 
     @GetMapping("/{customerId}")
@@ -25,9 +45,29 @@ public class CustomerController {
         return this.customerService.getCustomerInformation(customerId);
     }
 
+    // oldest first. pass the last id of a page as afterId to get the next page
+    @GetMapping("/{customerId}/trades")
+    public Flux<TradeLedgerEntry> getTrades(@PathVariable Integer customerId,
+                                            @RequestParam(defaultValue = "0") Long afterId,
+                                            @RequestParam(defaultValue = "100") Integer limit){
+        return this.tradeLedgerService.getTrades(customerId, afterId, limit);
+    }
+
+    @PostMapping(value = "/batch", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerInformation> getCustomerInformation(@RequestBody Mono<List<Integer>> mono){
+        return mono.flatMapMany(this.customerService::getCustomerInformation);
+    }
+
     @PostMapping("/{customerId}/trade")
-    public Mono<StockTradeResponse> trade(@PathVariable Integer customerId, @RequestBody Mono<StockTradeRequest> mono){
-        return mono.flatMap(req -> this.tradeService.trade(customerId, req));
+    public Mono<StockTradeResponse> trade(@PathVariable Integer customerId,
+                                          @RequestHeader(name = "Idempotency-Key", required = false) String idempotencyKey,
+                                          @RequestBody Mono<StockTradeRequest> mono){
+        return mono.flatMap(req -> this.idempotencyStore.execute(customerId, idempotencyKey, req, () -> this.tradeSequencer.trade(customerId, req)));
+    }
+
+    @PostMapping(value = "/trades", consumes = MediaType.APPLICATION_NDJSON_VALUE, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<CustomerStockTradeResponse> trade(@RequestBody Flux<CustomerStockTradeRequest> flux){
+        return this.bulkTradeService.trade(flux);
     }
 
 }
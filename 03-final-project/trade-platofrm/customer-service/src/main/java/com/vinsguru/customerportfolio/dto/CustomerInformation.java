@@ -1,9 +1,7 @@
 package com.vinsguru.customerportfolio.dto;
 
-import java.util.List;
-
 public record CustomerInformation(Integer id,
                                   String name,
                                   Integer balance,
-                                  List<Holding> holdings) {
+                                  Holdings holdings) {
 }
@@ -0,0 +1,5 @@
+package com.vinsguru.customerportfolio.dto;
+
+public record CustomerStockTradeRequest(Integer customerId,
+                                        StockTradeRequest trade) {
+}
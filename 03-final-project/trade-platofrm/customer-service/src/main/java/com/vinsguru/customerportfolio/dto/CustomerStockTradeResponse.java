@@ -0,0 +1,9 @@
+package com.vinsguru.customerportfolio.dto;
+
+import org.springframework.http.ProblemDetail;
+
+// either the trade or the problem is set
+public record CustomerStockTradeResponse(Integer customerId,
+                                         StockTradeResponse trade,
+                                         ProblemDetail problem) {
+}
@@ -0,0 +1,118 @@
+package com.vinsguru.customerportfolio.dto;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.vinsguru.customerportfolio.domain.Ticker;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/*
+    Quantity per ticker, indexed by Ticker.ordinal().
+    It is written as the same JSON as List<Holding>: [{"ticker":"GOOGLE","quantity":15}]
+    Instances which are a part of a CustomerInformation are shared (cache). Do not modify them, use copy().
+ */
+@JsonSerialize(using = Holdings.Serializer.class)
+@JsonDeserialize(using = Holdings.Deserializer.class)
+public final class Holdings {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+
+    private final int[] quantities;
+    private int held; // bit per ticker. a holding can have 0 quantity
+
+    public Holdings() {
+        this(new int[TICKERS.length], 0);
+    }
+
+    private Holdings(int[] quantities, int held) {
+        this.quantities = quantities;
+        this.held = held;
+    }
+
+    public Holdings put(Ticker ticker, int quantity) {
+        this.quantities[ticker.ordinal()] = quantity;
+        this.held |= 1 << ticker.ordinal();
+        return this;
+    }
+
+    public boolean contains(Ticker ticker) {
+        return (this.held & (1 << ticker.ordinal())) != 0;
+    }
+
+    public int quantity(Ticker ticker) {
+        return this.quantities[ticker.ordinal()];
+    }
+
+    public int size() {
+        return Integer.bitCount(this.held);
+    }
+
+    public void forEach(ObjIntConsumer<Ticker> consumer) {
+        for (var ticker : TICKERS) {
+            if (this.contains(ticker)) {
+                consumer.accept(ticker, this.quantity(ticker));
+            }
+        }
+    }
+
+    public Holdings copy() {
+        return new Holdings(this.quantities.clone(), this.held);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Holdings h && this.held == h.held && Arrays.equals(this.quantities, h.quantities);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * this.held + Arrays.hashCode(this.quantities);
+    }
+
+    @Override
+    public String toString() {
+        var sb = new StringBuilder("Holdings[");
+        this.forEach((ticker, quantity) -> sb.append(ticker).append('=').append(quantity).append(' '));
+        return sb.append(']').toString();
+    }
+
+    public static class Serializer extends JsonSerializer<Holdings> {
+
+        @Override
+        public void serialize(Holdings holdings, JsonGenerator gen, SerializerProvider serializers) throws IOException {
+            gen.writeStartArray(holdings, holdings.size());
+            for (var ticker : TICKERS) {
+                if (holdings.contains(ticker)) {
+                    gen.writeStartObject();
+                    gen.writeStringField("ticker", ticker.name());
+                    gen.writeNumberField("quantity", holdings.quantity(ticker));
+                    gen.writeEndObject();
+                }
+            }
+            gen.writeEndArray();
+        }
+
+    }
+
+    public static class Deserializer extends JsonDeserializer<Holdings> {
+
+        @Override
+        public Holdings deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            var holdings = new Holdings();
+            for (var holding : p.readValueAs(Holding[].class)) {
+                holdings.put(holding.ticker(), holding.quantity());
+            }
+            return holdings;
+        }
+
+    }
+
+}
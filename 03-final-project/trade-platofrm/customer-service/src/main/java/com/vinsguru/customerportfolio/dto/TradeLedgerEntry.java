@@ -0,0 +1,17 @@
+package com.vinsguru.customerportfolio.dto;
+
+import com.vinsguru.customerportfolio.domain.Ticker;
+import com.vinsguru.customerportfolio.domain.TradeAction;
+
+import java.time.LocalDateTime;
+
+public record TradeLedgerEntry(Long id,
+                               Integer customerId,
+                               Ticker ticker,
+                               Integer price,
+                               Integer quantity,
+                               TradeAction action,
+                               Integer totalPrice,
+                               Integer balance,
+                               LocalDateTime time) {
+}
@@ -0,0 +1,94 @@
+package com.vinsguru.customerportfolio.entity;
+
+import com.vinsguru.customerportfolio.domain.Ticker;
+import com.vinsguru.customerportfolio.domain.TradeAction;
+import org.springframework.data.annotation.Id;
+
+import java.time.LocalDateTime;
+
+public class TradeLedger {
+
+    @Id
+    private Long id;
+    private Integer customerId;
+    private Ticker ticker;
+    private Integer price;
+    private Integer quantity;
+    private TradeAction action;
+    private Integer totalPrice;
+    private Integer balance;
+    private LocalDateTime createdAt;
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getCustomerId() {
+        return customerId;
+    }
+
+    public void setCustomerId(Integer customerId) {
+        this.customerId = customerId;
+    }
+
+    public Ticker getTicker() {
+        return ticker;
+    }
+
+    public void setTicker(Ticker ticker) {
+        this.ticker = ticker;
+    }
+
+    public Integer getPrice() {
+        return price;
+    }
+
+    public void setPrice(Integer price) {
+        this.price = price;
+    }
+
+    public Integer getQuantity() {
+        return quantity;
+    }
+
+    public void setQuantity(Integer quantity) {
+        this.quantity = quantity;
+    }
+
+    public TradeAction getAction() {
+        return action;
+    }
+
+    public void setAction(TradeAction action) {
+        this.action = action;
+    }
+
+    public Integer getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(Integer totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public Integer getBalance() {
+        return balance;
+    }
+
+    public void setBalance(Integer balance) {
+        this.balance = balance;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+}
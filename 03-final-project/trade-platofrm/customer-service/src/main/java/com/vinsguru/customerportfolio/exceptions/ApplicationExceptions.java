@@ -16,4 +16,12 @@ public class ApplicationExceptions {
         return Mono.error(new InsufficientSharesException(customerId));
     }
 
+    public static <T> Mono<T> invalidRequest(String message){
+        return Mono.error(new InvalidRequestException(message));
+    }
+
+    public static <T> Mono<T> idempotencyKeyReused(String idempotencyKey){
+        return Mono.error(new IdempotencyKeyReusedException(idempotencyKey));
+    }
+
 }
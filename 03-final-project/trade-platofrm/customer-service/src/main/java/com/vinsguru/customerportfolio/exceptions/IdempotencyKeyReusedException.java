@@ -0,0 +1,11 @@
+package com.vinsguru.customerportfolio.exceptions;
+
+public class IdempotencyKeyReusedException extends RuntimeException {
+
+    private static final String MESSAGE = "Idempotency-Key [%s] was already used for a different trade";
+
+    public IdempotencyKeyReusedException(String idempotencyKey){
+        super(MESSAGE.formatted(idempotencyKey));
+    }
+
+}
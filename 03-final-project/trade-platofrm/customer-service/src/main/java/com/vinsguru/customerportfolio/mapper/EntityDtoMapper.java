@@ -2,20 +2,24 @@ package com.vinsguru.customerportfolio.mapper;
 
 import com.vinsguru.customerportfolio.domain.Ticker;
 import com.vinsguru.customerportfolio.dto.CustomerInformation;
-import com.vinsguru.customerportfolio.dto.Holding;
+import com.vinsguru.customerportfolio.dto.Holdings;
 import com.vinsguru.customerportfolio.dto.StockTradeRequest;
 import com.vinsguru.customerportfolio.dto.StockTradeResponse;
+import com.vinsguru.customerportfolio.dto.TradeLedgerEntry;
 import com.vinsguru.customerportfolio.entity.Customer;
 import com.vinsguru.customerportfolio.entity.PortfolioItem;
+import com.vinsguru.customerportfolio.entity.TradeLedger;
 
-import java.util.List;
+import java.time.LocalDateTime;
+import java.util.Collection;
 
 public class EntityDtoMapper {
 
-    public static CustomerInformation toCustomerInformation(Customer customer, List<PortfolioItem> items) {
-        var holdings = items.stream()
-                            .map(i -> new Holding(i.getTicker(), i.getQuantity()))
-                            .toList();
+    public static CustomerInformation toCustomerInformation(Customer customer, Collection<PortfolioItem> items) {
+        var holdings = new Holdings();
+        for (var item : items) {
+            holdings.put(item.getTicker(), item.getQuantity());
+        }
         return new CustomerInformation(
                 customer.getId(),
                 customer.getName(),
@@ -24,6 +28,22 @@ public class EntityDtoMapper {
         );
     }
 
+    // the holdings after the trade
+    public static CustomerInformation applyTrade(CustomerInformation information, StockTradeResponse response) {
+        var delta = switch (response.action()) {
+            case BUY -> response.quantity();
+            case SELL -> -response.quantity();
+        };
+        var holdings = information.holdings().copy();
+        holdings.put(response.ticker(), holdings.quantity(response.ticker()) + delta);
+        return new CustomerInformation(
+                information.id(),
+                information.name(),
+                response.balance(),
+                holdings
+        );
+    }
+
     public static PortfolioItem toPortfolioItem(Integer customerId, Ticker ticker){
         var portfolioItem = new PortfolioItem();
         portfolioItem.setCustomerId(customerId);
@@ -44,4 +64,31 @@ public class EntityDtoMapper {
         );
     }
 
+    public static TradeLedger toTradeLedger(StockTradeResponse response) {
+        var tradeLedger = new TradeLedger();
+        tradeLedger.setCustomerId(response.customerId());
+        tradeLedger.setTicker(response.ticker());
+        tradeLedger.setPrice(response.price());
+        tradeLedger.setQuantity(response.quantity());
+        tradeLedger.setAction(response.action());
+        tradeLedger.setTotalPrice(response.totalPrice());
+        tradeLedger.setBalance(response.balance());
+        tradeLedger.setCreatedAt(LocalDateTime.now());
+        return tradeLedger;
+    }
+
+    public static TradeLedgerEntry toTradeLedgerEntry(TradeLedger tradeLedger) {
+        return new TradeLedgerEntry(
+                tradeLedger.getId(),
+                tradeLedger.getCustomerId(),
+                tradeLedger.getTicker(),
+                tradeLedger.getPrice(),
+                tradeLedger.getQuantity(),
+                tradeLedger.getAction(),
+                tradeLedger.getTotalPrice(),
+                tradeLedger.getBalance(),
+                tradeLedger.getCreatedAt()
+        );
+    }
+
 }
@@ -0,0 +1,79 @@
+package com.vinsguru.customerportfolio.repository;
+
+import com.vinsguru.customerportfolio.domain.Ticker;
+import com.vinsguru.customerportfolio.dto.CustomerInformation;
+import com.vinsguru.customerportfolio.dto.Holdings;
+import io.r2dbc.spi.Readable;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+@Repository
+public class CustomerInformationRepository {
+
+    private static final String CUSTOMER_INFORMATION_QUERY = """
+            SELECT
+                c.id,
+                c.name,
+                c.balance,
+                p.ticker,
+                p.quantity
+            FROM
+                customer c
+            LEFT JOIN portfolio_item p ON c.id = p.customer_id
+            WHERE
+                c.id = :customerId
+            ORDER BY p.id
+            """;
+
+    private final DatabaseClient client;
+
+    public CustomerInformationRepository(DatabaseClient client) {
+        this.client = client;
+    }
+
+    // customer + holdings in 1 query. empty when the customer is not found
+    public Mono<CustomerInformation> findCustomerInformation(Integer customerId) {
+        return Mono.defer(() -> {
+            var builder = new CustomerInformationBuilder();
+            return this.client.sql(CUSTOMER_INFORMATION_QUERY)
+                              .bind("customerId", customerId)
+                              .map(builder::add)
+                              .all()
+                              .then(Mono.fromSupplier(builder::build));
+        });
+    }
+
+    // rows are folded as they arrive. the first row carries the customer, every row at most 1 holding
+    private static class CustomerInformationBuilder {
+
+        private final Holdings holdings = new Holdings();
+        private Integer id;
+        private String name;
+        private Integer balance;
+
+        private CustomerInformationBuilder add(Readable row) {
+            if (Objects.isNull(this.id)) {
+                this.id = row.get("id", Integer.class);
+                this.name = row.get("name", String.class);
+                this.balance = row.get("balance", Integer.class);
+            }
+            var ticker = row.get("ticker", String.class);
+            if (Objects.nonNull(ticker)) {
+                this.holdings.put(Ticker.valueOf(ticker), row.get("quantity", Integer.class));
+            }
+            return this;
+        }
+
+        private CustomerInformation build() {
+            if (Objects.isNull(this.id)) {
+                return null;
+            }
+            return new CustomerInformation(this.id, this.name, this.balance, this.holdings);
+        }
+
+    }
+
+}
@@ -1,9 +1,33 @@
 package com.vinsguru.customerportfolio.repository;
 
 import com.vinsguru.customerportfolio.entity.Customer;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Mono;
 
 @Repository
 public interface CustomerRepository extends ReactiveCrudRepository<Customer, Integer> {
+
+    // emits the updated balance. empty when the customer is not found or does not have enough funds
+    @Query("""
+           SELECT balance FROM FINAL TABLE (
+               UPDATE customer
+               SET balance = balance - :amount
+               WHERE id = :customerId
+               AND balance >= :amount
+           )
+           """)
+    Mono<Integer> withdraw(Integer customerId, Integer amount);
+
+    // emits the updated balance. empty when the customer is not found
+    @Query("""
+           SELECT balance FROM FINAL TABLE (
+               UPDATE customer
+               SET balance = balance + :amount
+               WHERE id = :customerId
+           )
+           """)
+    Mono<Integer> deposit(Integer customerId, Integer amount);
+
 }
@@ -2,16 +2,58 @@ package com.vinsguru.customerportfolio.repository;
 
 import com.vinsguru.customerportfolio.domain.Ticker;
 import com.vinsguru.customerportfolio.entity.PortfolioItem;
+import org.springframework.data.r2dbc.repository.Modifying;
+import org.springframework.data.r2dbc.repository.Query;
 import org.springframework.data.repository.reactive.ReactiveCrudRepository;
 import org.springframework.stereotype.Repository;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.Collection;
+
 @Repository
 public interface PortfolioItemRepository extends ReactiveCrudRepository<PortfolioItem, Integer> {
 
     Flux<PortfolioItem> findAllByCustomerId(Integer customerId);
 
+    Flux<PortfolioItem> findAllByCustomerIdIn(Collection<Integer> customerIds);
+
     Mono<PortfolioItem> findByCustomerIdAndTicker(Integer customerId, Ticker ticker);
 
+    // inserts or replaces the holding. relies on the unique (customer_id, ticker) index
+    @Modifying
+    @Query("""
+           MERGE INTO portfolio_item(customer_id, ticker, quantity)
+           KEY (customer_id, ticker)
+           VALUES (:customerId, :ticker, :quantity)
+           """)
+    Mono<Boolean> upsert(Integer customerId, Ticker ticker, Integer quantity);
+
+    @Modifying
+    @Query("""
+           MERGE INTO portfolio_item p
+           USING (
+               SELECT CAST(:customerId AS INT) AS customer_id,
+                      CAST(:ticker AS VARCHAR(10)) AS ticker,
+                      CAST(:quantity AS INT) AS quantity
+           ) s
+           ON p.customer_id = s.customer_id AND p.ticker = s.ticker
+           WHEN MATCHED THEN
+               UPDATE SET quantity = p.quantity + s.quantity
+           WHEN NOT MATCHED THEN
+               INSERT (customer_id, ticker, quantity) VALUES (s.customer_id, s.ticker, s.quantity)
+           """)
+    Mono<Boolean> addShares(Integer customerId, Ticker ticker, Integer quantity);
+
+    // false when the customer does not hold enough shares
+    @Modifying
+    @Query("""
+           UPDATE portfolio_item
+           SET quantity = quantity - :quantity
+           WHERE customer_id = :customerId
+           AND ticker = :ticker
+           AND quantity >= :quantity
+           """)
+    Mono<Boolean> removeShares(Integer customerId, Ticker ticker, Integer quantity);
+
 }
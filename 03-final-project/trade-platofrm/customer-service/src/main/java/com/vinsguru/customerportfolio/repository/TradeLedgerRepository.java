@@ -0,0 +1,22 @@
+package com.vinsguru.customerportfolio.repository;
+
+import com.vinsguru.customerportfolio.entity.TradeLedger;
+import org.springframework.data.r2dbc.repository.Query;
+import org.springframework.data.repository.reactive.ReactiveCrudRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+
+@Repository
+public interface TradeLedgerRepository extends ReactiveCrudRepository<TradeLedger, Long> {
+
+    // keyset pagination. the next page starts after the last id of this page
+    @Query("""
+           SELECT * FROM trade_ledger
+           WHERE customer_id = :customerId
+           AND id > :afterId
+           ORDER BY id
+           LIMIT :limit
+           """)
+    Flux<TradeLedger> findPage(Integer customerId, Long afterId, Integer limit);
+
+}
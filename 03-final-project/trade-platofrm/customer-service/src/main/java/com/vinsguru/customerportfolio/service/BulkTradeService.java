@@ -0,0 +1,44 @@
+package com.vinsguru.customerportfolio.service;
+
+import com.vinsguru.customerportfolio.advice.ApplicationExceptionHandler;
+import com.vinsguru.customerportfolio.dto.CustomerStockTradeRequest;
+import com.vinsguru.customerportfolio.dto.CustomerStockTradeResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Objects;
+
+/*
+    Executes a stream of trades with bounded concurrency.
+    Trades are split into rails by customer id and every rail is executed one trade at a time,
+    so the trades of a customer are executed in the order they were submitted.
+ */
+@Service
+public class BulkTradeService {
+
+    private final TradeSequencer tradeSequencer;
+    private final ApplicationExceptionHandler exceptionHandler;
+    private final int concurrency;
+
+    public BulkTradeService(TradeSequencer tradeSequencer,
+                            ApplicationExceptionHandler exceptionHandler,
+                            @Value("${trade.bulk.concurrency:8}") int concurrency) {
+        this.tradeSequencer = tradeSequencer;
+        this.exceptionHandler = exceptionHandler;
+        this.concurrency = concurrency;
+    }
+
+    public Flux<CustomerStockTradeResponse> trade(Flux<CustomerStockTradeRequest> requests) {
+        return requests.groupBy(r -> Math.floorMod(Objects.hashCode(r.customerId()), this.concurrency))
+                       .flatMap(rail -> rail.concatMap(this::trade), this.concurrency);
+    }
+
+    private Mono<CustomerStockTradeResponse> trade(CustomerStockTradeRequest request) {
+        return this.tradeSequencer.trade(request.customerId(), request.trade())
+                                  .map(response -> new CustomerStockTradeResponse(request.customerId(), response, null))
+                                  .onErrorResume(ex -> Mono.just(new CustomerStockTradeResponse(request.customerId(), null, this.exceptionHandler.toProblemDetail(ex))));
+    }
+
+}
@@ -0,0 +1,129 @@
+package com.vinsguru.customerportfolio.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vinsguru.customerportfolio.dto.CustomerInformation;
+import com.vinsguru.customerportfolio.dto.StockTradeResponse;
+import com.vinsguru.customerportfolio.mapper.EntityDtoMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Function;
+
+/*
+    Bounded (W-TinyLFU) cache of CustomerInformation, updated by every successful trade.
+
+    Loads and trades race on the same customer. Every cache write (load or trade) bumps a striped version,
+    and a trade also bumps it when it starts. A trade applies its change to the cached entry only if nothing
+    else touched the stripe while it was running, otherwise it drops the entry. A load is cached only if no
+    trade started / completed while it was reading. So an entry is never older than the last committed trade.
+ */
+@Component
+public class CustomerInformationCache {
+
+    private static final int STRIPES = 1024;
+
+    private final boolean enabled;
+    private final Cache<Integer, CustomerInformation> cache;
+    private final AtomicLongArray versions = new AtomicLongArray(STRIPES);
+
+    public CustomerInformationCache(@Value("${customer.cache.enabled:true}") boolean enabled,
+                                    @Value("${customer.cache.max-size:10000}") long maxSize,
+                                    MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maxSize)
+                             .recordStats()
+                             .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, this.cache, "customer-information");
+    }
+
+    public Mono<CustomerInformation> get(Integer customerId, Mono<CustomerInformation> loader) {
+        if (!this.enabled) {
+            return loader;
+        }
+        return Mono.defer(() -> {
+            var cached = this.cache.getIfPresent(customerId);
+            if (Objects.nonNull(cached)) {
+                return Mono.just(cached);
+            }
+            var version = this.versions.get(stripe(customerId));
+            return loader.doOnNext(info -> this.put(customerId, version, info));
+        });
+    }
+
+    // cache hits first, then the misses loaded with a single loader call
+    public Flux<CustomerInformation> getAll(Collection<Integer> customerIds, Function<List<Integer>, Flux<CustomerInformation>> loader) {
+        var uniqueIds = List.copyOf(new LinkedHashSet<>(customerIds));
+        if (!this.enabled) {
+            return loader.apply(uniqueIds);
+        }
+        return Flux.defer(() -> {
+            var hits = new ArrayList<CustomerInformation>();
+            var misses = new HashMap<Integer, Long>();
+            for (var customerId : uniqueIds) {
+                var cached = this.cache.getIfPresent(customerId);
+                if (Objects.nonNull(cached)) {
+                    hits.add(cached);
+                } else {
+                    misses.put(customerId, this.versions.get(stripe(customerId)));
+                }
+            }
+            if (misses.isEmpty()) {
+                return Flux.fromIterable(hits);
+            }
+            return Flux.fromIterable(hits)
+                       .concatWith(loader.apply(List.copyOf(misses.keySet()))
+                                         .doOnNext(info -> this.put(info.id(), misses.get(info.id()), info)));
+        });
+    }
+
+    public Mono<StockTradeResponse> update(Integer customerId, Mono<StockTradeResponse> trade) {
+        if (!this.enabled) {
+            return trade;
+        }
+        return Mono.defer(() -> {
+            var version = this.versions.incrementAndGet(stripe(customerId));
+            return trade.doOnNext(response -> this.apply(customerId, version, response))
+                        .doFinally(signal -> {
+                            if (signal != SignalType.ON_COMPLETE) {
+                                this.versions.incrementAndGet(stripe(customerId));
+                            }
+                        });
+        });
+    }
+
+    private void put(Integer customerId, long version, CustomerInformation info) {
+        this.cache.asMap().compute(customerId, (id, current) -> {
+            if (this.versions.get(stripe(id)) != version) {
+                return current;
+            }
+            this.versions.incrementAndGet(stripe(id));
+            return info;
+        });
+    }
+
+    private void apply(Integer customerId, long version, StockTradeResponse response) {
+        this.cache.asMap().compute(customerId, (id, current) -> {
+            var unchanged = this.versions.getAndIncrement(stripe(id)) == version;
+            return unchanged && Objects.nonNull(current) ? EntityDtoMapper.applyTrade(current, response) : null;
+        });
+    }
+
+    private static int stripe(Integer customerId) {
+        return Math.floorMod(customerId, STRIPES);
+    }
+
+}
@@ -1,35 +1,68 @@
 package com.vinsguru.customerportfolio.service;
 
 import com.vinsguru.customerportfolio.dto.CustomerInformation;
-import com.vinsguru.customerportfolio.entity.Customer;
+import com.vinsguru.customerportfolio.entity.PortfolioItem;
 import com.vinsguru.customerportfolio.exceptions.ApplicationExceptions;
 import com.vinsguru.customerportfolio.mapper.EntityDtoMapper;
+import com.vinsguru.customerportfolio.repository.CustomerInformationRepository;
 import com.vinsguru.customerportfolio.repository.CustomerRepository;
 import com.vinsguru.customerportfolio.repository.PortfolioItemRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Objects;
+
 @Service
 public class CustomerService {
 
     private final CustomerRepository customerRepository;
     private final PortfolioItemRepository portfolioItemRepository;
+    private final CustomerInformationRepository customerInformationRepository;
+    private final CustomerInformationCache customerInformationCache;
+    private final int maxBatchSize;
 
-    public CustomerService(CustomerRepository customerRepository, PortfolioItemRepository portfolioItemRepository) {
+    public CustomerService(CustomerRepository customerRepository,
+                           PortfolioItemRepository portfolioItemRepository,
+                           CustomerInformationRepository customerInformationRepository,
+                           CustomerInformationCache customerInformationCache,
+                           @Value("${customer.batch.max-size:1000}") int maxBatchSize) {
         this.customerRepository = customerRepository;
         this.portfolioItemRepository = portfolioItemRepository;
+        this.customerInformationRepository = customerInformationRepository;
+        this.customerInformationCache = customerInformationCache;
+        this.maxBatchSize = maxBatchSize;
     }
 
     public Mono<CustomerInformation> getCustomerInformation(Integer customerId) {
-        return this.customerRepository.findById(customerId)
-                                      .switchIfEmpty(ApplicationExceptions.customerNotFound(customerId))
-                                      .flatMap(this::buildCustomerInformation);
+        return this.customerInformationCache.get(customerId, this.loadCustomerInformation(customerId));
+    }
+
+    private Mono<CustomerInformation> loadCustomerInformation(Integer customerId) {
+        return this.customerInformationRepository.findCustomerInformation(customerId)
+                                                 .switchIfEmpty(ApplicationExceptions.customerNotFound(customerId));
+    }
+
+    // unknown customers are skipped
+    public Flux<CustomerInformation> getCustomerInformation(List<Integer> customerIds) {
+        if (customerIds.size() > this.maxBatchSize || customerIds.stream().anyMatch(Objects::isNull)) {
+            var message = "customer ids must not be null and at most %d per batch".formatted(this.maxBatchSize);
+            return ApplicationExceptions.<CustomerInformation>invalidRequest(message).flux();
+        }
+        return this.customerInformationCache.getAll(customerIds, this::loadCustomerInformation);
     }
 
-    private Mono<CustomerInformation> buildCustomerInformation(Customer customer) {
-        return this.portfolioItemRepository.findAllByCustomerId(customer.getId())
-                                           .collectList()
-                                           .map(list -> EntityDtoMapper.toCustomerInformation(customer, list));
+    // 2 queries regardless of the number of customers
+    private Flux<CustomerInformation> loadCustomerInformation(List<Integer> customerIds) {
+        if (customerIds.isEmpty()) {
+            return Flux.empty(); // IN () is not valid sql
+        }
+        return this.portfolioItemRepository.findAllByCustomerIdIn(customerIds)
+                                           .collectMultimap(PortfolioItem::getCustomerId)
+                                           .flatMapMany(items -> this.customerRepository.findAllById(customerIds)
+                                                                                        .map(c -> EntityDtoMapper.toCustomerInformation(c, items.getOrDefault(c.getId(), List.of()))));
     }
 
 }
@@ -0,0 +1,65 @@
+package com.vinsguru.customerportfolio.service;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+
+/*
+    Seeds a production sized data set to measure the lookup latency: --spring.profiles.active=datagen
+    The data is derived from the row numbers, so every run produces the same data set.
+ */
+@Service
+@Profile("datagen")
+public class DataGeneratorService implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(DataGeneratorService.class);
+
+    private static final String CUSTOMERS_SQL = """
+            INSERT INTO customer(name, balance)
+                SELECT 'customer-' || X, 10000 + MOD(X * 7919, 90000)
+                FROM SYSTEM_RANGE(1, :customers)
+            """;
+
+    private static final String HOLDINGS_SQL = """
+            INSERT INTO portfolio_item(customer_id, ticker, quantity)
+                SELECT c.id, t.ticker, MOD(c.id * 31 + t.n * 17, 500)
+                FROM customer c
+                CROSS JOIN (VALUES (0, 'AMAZON'), (1, 'APPLE'), (2, 'GOOGLE'), (3, 'MICROSOFT')) AS t(n, ticker)
+                WHERE c.name LIKE 'customer-%'
+                AND MOD(c.id + t.n, 4) < :holdingsPerCustomer
+            """;
+
+    private final DatabaseClient client;
+    private final int customers;
+    private final int holdingsPerCustomer;
+
+    public DataGeneratorService(DatabaseClient client,
+                                @Value("${data-generator.customers}") int customers,
+                                @Value("${data-generator.holdings-per-customer}") int holdingsPerCustomer) {
+        this.client = client;
+        this.customers = customers;
+        this.holdingsPerCustomer = holdingsPerCustomer;
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        var start = System.currentTimeMillis();
+        this.client.sql(CUSTOMERS_SQL)
+                   .bind("customers", this.customers)
+                   .fetch()
+                   .rowsUpdated()
+                   .doOnNext(rows -> log.info("generated {} customers", rows))
+                   .then(this.client.sql(HOLDINGS_SQL)
+                                    .bind("holdingsPerCustomer", this.holdingsPerCustomer)
+                                    .fetch()
+                                    .rowsUpdated())
+                   .doOnNext(rows -> log.info("generated {} holdings in {} ms", rows, System.currentTimeMillis() - start))
+                   .then()
+                   .block(); // the application does not start with a partial data set, a failure aborts the startup
+    }
+
+}
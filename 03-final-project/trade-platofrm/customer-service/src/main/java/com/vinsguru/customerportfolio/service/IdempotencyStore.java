@@ -0,0 +1,79 @@
+package com.vinsguru.customerportfolio.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.vinsguru.customerportfolio.domain.Ticker;
+import com.vinsguru.customerportfolio.domain.TradeAction;
+import com.vinsguru.customerportfolio.dto.StockTradeRequest;
+import com.vinsguru.customerportfolio.dto.StockTradeResponse;
+import com.vinsguru.customerportfolio.exceptions.ApplicationExceptions;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/*
+    Trades by Idempotency-Key. In-flight and completed trades are kept for the ttl (bounded),
+    so a duplicate request shares the response of the first one and the trade is executed only once.
+    A failed trade is removed, so that the client can retry it with the same key.
+
+    The key is bound to what the customer asked for (ticker, action, quantity). Reusing it for a different trade
+    is rejected. The price is not part of it: it is set by the aggregator and a retry may come with a newer one.
+ */
+@Component
+public class IdempotencyStore {
+
+    private final Cache<String, Entry> cache;
+
+    public IdempotencyStore(@Value("${trade.idempotency.max-size:100000}") long maxSize,
+                            @Value("${trade.idempotency.ttl:10m}") Duration ttl) {
+        this.cache = Caffeine.newBuilder()
+                             .maximumSize(maxSize)
+                             .expireAfterWrite(ttl)
+                             .build();
+    }
+
+    public Mono<StockTradeResponse> execute(Integer customerId, String idempotencyKey, StockTradeRequest request, Supplier<Mono<StockTradeResponse>> trade) {
+        if (Objects.isNull(idempotencyKey)) {
+            return Mono.defer(trade);
+        }
+        var key = customerId + ":" + idempotencyKey;
+        var fingerprint = Fingerprint.of(request);
+        return Mono.defer(() -> {
+            var entry = this.cache.get(key, k -> this.newEntry(k, fingerprint, trade));
+            return entry.fingerprint().equals(fingerprint)
+                    ? entry.response()
+                    : ApplicationExceptions.idempotencyKeyReused(idempotencyKey);
+        });
+    }
+
+    private Entry newEntry(String key, Fingerprint fingerprint, Supplier<Mono<StockTradeResponse>> trade) {
+        var entry = new AtomicReference<Entry>();
+        entry.set(new Entry(
+                fingerprint,
+                Mono.defer(trade)
+                    .doOnError(ex -> this.cache.asMap().remove(key, entry.get()))
+                    .cache()
+        ));
+        return entry.get();
+    }
+
+    private record Fingerprint(Ticker ticker,
+                               TradeAction action,
+                               Integer quantity) {
+
+        private static Fingerprint of(StockTradeRequest request) {
+            return new Fingerprint(request.ticker(), request.action(), request.quantity());
+        }
+
+    }
+
+    private record Entry(Fingerprint fingerprint,
+                         Mono<StockTradeResponse> response) {
+    }
+
+}
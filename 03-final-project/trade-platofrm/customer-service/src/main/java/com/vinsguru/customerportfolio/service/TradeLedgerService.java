@@ -0,0 +1,115 @@
+package com.vinsguru.customerportfolio.service;
+
+import com.vinsguru.customerportfolio.dto.StockTradeResponse;
+import com.vinsguru.customerportfolio.dto.TradeLedgerEntry;
+import com.vinsguru.customerportfolio.entity.TradeLedger;
+import com.vinsguru.customerportfolio.exceptions.ApplicationExceptions;
+import com.vinsguru.customerportfolio.mapper.EntityDtoMapper;
+import com.vinsguru.customerportfolio.repository.TradeLedgerRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/*
+    Append only history of the executed trades.
+    Entries are queued and written by a background writer, 1 multi-row insert per batch-size entries or per
+    batch-interval, whichever comes first. Queued entries are lost if the process is killed before they are written.
+ */
+@Service
+public class TradeLedgerService {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeLedgerService.class);
+    private static final String INSERT_SQL = "INSERT INTO trade_ledger(customer_id, ticker, price, quantity, action, total_price, balance, created_at) VALUES ";
+    private static final String ROW_SQL = "(:customerId%1$d, :ticker%1$d, :price%1$d, :quantity%1$d, :action%1$d, :totalPrice%1$d, :balance%1$d, :createdAt%1$d)";
+
+    private final TradeLedgerRepository tradeLedgerRepository;
+    private final DatabaseClient client;
+    private final Sinks.Many<TradeLedger> sink = Sinks.many().unicast().onBackpressureBuffer();
+    private final CompletableFuture<Void> writer;
+    private final int maxPageSize;
+
+    public TradeLedgerService(TradeLedgerRepository tradeLedgerRepository,
+                              DatabaseClient client,
+                              @Value("${trade.ledger.batch-size:500}") int batchSize,
+                              @Value("${trade.ledger.batch-interval:100ms}") Duration batchInterval,
+                              @Value("${trade.ledger.max-page-size:1000}") int maxPageSize) {
+        this.tradeLedgerRepository = tradeLedgerRepository;
+        this.client = client;
+        this.maxPageSize = maxPageSize;
+        // fair backpressure: the buffers wait for the slow inserts instead of failing the writer
+        this.writer = this.sink.asFlux()
+                               .bufferTimeout(batchSize, batchInterval, true)
+                               .concatMap(this::insert)
+                               .doOnError(ex -> log.error("trade ledger writer stopped", ex))
+                               .then()
+                               .toFuture();
+    }
+
+    public void record(StockTradeResponse response) {
+        var entry = EntityDtoMapper.toTradeLedger(response);
+        Sinks.EmitResult result;
+        while ((result = this.sink.tryEmitNext(entry)) == Sinks.EmitResult.FAIL_NON_SERIALIZED) {
+            Thread.onSpinWait(); // another trade is being recorded
+        }
+        if (result.isFailure()) {
+            log.warn("trade ledger entry of customer {} is dropped: {}", entry.getCustomerId(), result);
+        }
+    }
+
+    public Flux<TradeLedgerEntry> getTrades(Integer customerId, Long afterId, Integer limit) {
+        if (afterId < 0 || limit < 1 || limit > this.maxPageSize) {
+            var message = "afterId must be >= 0 and limit must be between 1 and %d".formatted(this.maxPageSize);
+            return ApplicationExceptions.<TradeLedgerEntry>invalidRequest(message).flux();
+        }
+        return this.tradeLedgerRepository.findPage(customerId, afterId, limit)
+                                         .map(EntityDtoMapper::toTradeLedgerEntry);
+    }
+
+    private Mono<Long> insert(List<TradeLedger> batch) {
+        var sql = new StringBuilder(INSERT_SQL);
+        for (int i = 0; i < batch.size(); i++) {
+            sql.append(i == 0 ? "" : ", ").append(ROW_SQL.formatted(i));
+        }
+        var spec = this.client.sql(sql.toString());
+        for (int i = 0; i < batch.size(); i++) {
+            var entry = batch.get(i);
+            spec = spec.bind("customerId" + i, entry.getCustomerId())
+                       .bind("ticker" + i, entry.getTicker().name())
+                       .bind("price" + i, entry.getPrice())
+                       .bind("quantity" + i, entry.getQuantity())
+                       .bind("action" + i, entry.getAction().name())
+                       .bind("totalPrice" + i, entry.getTotalPrice())
+                       .bind("balance" + i, entry.getBalance())
+                       .bind("createdAt" + i, entry.getCreatedAt());
+        }
+        return spec.fetch()
+                   .rowsUpdated()
+                   .onErrorResume(ex -> {
+                       log.error("unable to write {} trade ledger entries", batch.size(), ex);
+                       return Mono.empty();
+                   });
+    }
+
+    // writes what is still queued
+    @PreDestroy
+    public void close() {
+        this.sink.tryEmitComplete();
+        try {
+            this.writer.get(5, TimeUnit.SECONDS);
+        } catch (Exception e) {
+            log.warn("trade ledger writer did not complete: {}", e.getMessage());
+        }
+    }
+
+}
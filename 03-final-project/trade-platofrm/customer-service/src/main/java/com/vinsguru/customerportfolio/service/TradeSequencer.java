@@ -0,0 +1,241 @@
+package com.vinsguru.customerportfolio.service;
+
+import com.vinsguru.customerportfolio.domain.Ticker;
+import com.vinsguru.customerportfolio.dto.StockTradeRequest;
+import com.vinsguru.customerportfolio.dto.StockTradeResponse;
+import com.vinsguru.customerportfolio.entity.Customer;
+import com.vinsguru.customerportfolio.entity.PortfolioItem;
+import com.vinsguru.customerportfolio.exceptions.ApplicationExceptions;
+import com.vinsguru.customerportfolio.exceptions.InsufficientBalanceException;
+import com.vinsguru.customerportfolio.exceptions.InsufficientSharesException;
+import com.vinsguru.customerportfolio.mapper.EntityDtoMapper;
+import com.vinsguru.customerportfolio.repository.CustomerRepository;
+import com.vinsguru.customerportfolio.repository.PortfolioItemRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.util.concurrent.Queues;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/*
+    Serializes the trades of a customer in-process.
+    Trades are routed to a lane by customer id. A lane executes one batch at a time and
+    everything queued while a batch is being written is folded into the next batch:
+    1 read of the customer + holdings, 1 balance update and 1 update per traded ticker.
+    Each caller still gets its own response / error.
+ */
+@Service
+public class TradeSequencer {
+
+    private static final Logger log = LoggerFactory.getLogger(TradeSequencer.class);
+
+    private final TradeService tradeService;
+    private final CustomerInformationCache customerInformationCache;
+    private final TradeLedgerService tradeLedgerService;
+    private final CustomerRepository customerRepository;
+    private final PortfolioItemRepository portfolioItemRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final boolean enabled;
+    private final int maxBatchSize;
+    private final Lane[] lanes;
+
+    public TradeSequencer(TradeService tradeService,
+                          CustomerInformationCache customerInformationCache,
+                          TradeLedgerService tradeLedgerService,
+                          CustomerRepository customerRepository,
+                          PortfolioItemRepository portfolioItemRepository,
+                          TransactionalOperator transactionalOperator,
+                          @Value("${trade.sequencer.enabled:false}") boolean enabled,
+                          @Value("${trade.sequencer.lanes:16}") int lanes,
+                          @Value("${trade.sequencer.max-batch-size:256}") int maxBatchSize) {
+        this.tradeService = tradeService;
+        this.customerInformationCache = customerInformationCache;
+        this.tradeLedgerService = tradeLedgerService;
+        this.customerRepository = customerRepository;
+        this.portfolioItemRepository = portfolioItemRepository;
+        this.transactionalOperator = transactionalOperator;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.lanes = new Lane[lanes];
+        for (int i = 0; i < lanes; i++) {
+            this.lanes[i] = new Lane();
+        }
+    }
+
+    // the cache and the ledger are updated once the trade is committed
+    public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest request) {
+        var trade = this.enabled ? this.sequence(customerId, request) : this.tradeService.trade(customerId, request);
+        return this.customerInformationCache.update(customerId, trade)
+                                            .doOnNext(this.tradeLedgerService::record);
+    }
+
+    private Mono<StockTradeResponse> sequence(Integer customerId, StockTradeRequest request) {
+        return Mono.defer(() -> {
+            var trade = new PendingTrade(customerId, request, Sinks.one());
+            this.lanes[Math.floorMod(customerId, this.lanes.length)].submit(trade);
+            return trade.sink().asMono();
+        });
+    }
+
+    private Mono<Void> execute(List<PendingTrade> batch) {
+        var tradesByCustomer = new LinkedHashMap<Integer, List<PendingTrade>>();
+        batch.forEach(t -> tradesByCustomer.computeIfAbsent(t.customerId(), k -> new ArrayList<>()).add(t));
+        return Flux.fromIterable(tradesByCustomer.entrySet())
+                   .concatMap(e -> this.execute(e.getKey(), e.getValue()))
+                   .then();
+    }
+
+    private Mono<Void> execute(Integer customerId, List<PendingTrade> trades) {
+        return this.customerRepository.findById(customerId)
+                                      .switchIfEmpty(ApplicationExceptions.customerNotFound(customerId))
+                                      .zipWhen(customer -> this.portfolioItemRepository.findAllByCustomerId(customerId)
+                                                                                       .collectMap(PortfolioItem::getTicker, PortfolioItem::getQuantity))
+                                      .map(t -> this.fold(t.getT1(), t.getT2(), trades))
+                                      .flatMap(folded -> this.write(folded).thenReturn(folded))
+                                      .as(this.transactionalOperator::transactional)
+                                      .doOnNext(FoldedTrades::complete)
+                                      .doOnError(ex -> trades.forEach(t -> t.sink().tryEmitError(ex)))
+                                      .onErrorResume(ex -> Mono.empty())
+                                      .then();
+    }
+
+    private FoldedTrades fold(Customer customer, Map<Ticker, Integer> quantities, List<PendingTrade> trades) {
+        var folded = new FoldedTrades(customer.getId(), customer.getBalance(), quantities);
+        trades.forEach(folded::apply);
+        return folded;
+    }
+
+    /*
+        Only the net change is written, so trades executed outside of the sequencer are not overwritten.
+        The funds / shares were checked against a snapshot, so the debits use the guarded statements:
+        if another writer got there first, the whole batch is rolled back and rejected.
+     */
+    private Mono<Void> write(FoldedTrades folded) {
+        var customerId = folded.customerId;
+        var balanceUpdate = switch (Integer.signum(folded.balanceDelta)) {
+            case -1 -> this.customerRepository.withdraw(customerId, -folded.balanceDelta)
+                                              .switchIfEmpty(ApplicationExceptions.insufficientBalance(customerId));
+            case 1 -> this.customerRepository.deposit(customerId, folded.balanceDelta);
+            default -> Mono.<Integer>empty();
+        };
+        return balanceUpdate.thenMany(Flux.fromIterable(folded.quantityDeltas.entrySet()))
+                            .filter(e -> e.getValue() != 0)
+                            .concatMap(e -> this.updateShares(customerId, e.getKey(), e.getValue()))
+                            .then();
+    }
+
+    private Mono<Boolean> updateShares(Integer customerId, Ticker ticker, int delta) {
+        if (delta > 0) {
+            return this.portfolioItemRepository.addShares(customerId, ticker, delta);
+        }
+        return this.portfolioItemRepository.removeShares(customerId, ticker, -delta)
+                                           .filter(Boolean::booleanValue)
+                                           .switchIfEmpty(ApplicationExceptions.insufficientShares(customerId));
+    }
+
+    private record PendingTrade(Integer customerId,
+                                StockTradeRequest request,
+                                Sinks.One<StockTradeResponse> sink) {
+    }
+
+    private static class FoldedTrades {
+
+        private final Integer customerId;
+        private final Map<Ticker, Integer> quantities = new EnumMap<>(Ticker.class);
+        private final Map<Ticker, Integer> quantityDeltas = new EnumMap<>(Ticker.class);
+        private final List<Runnable> completions = new ArrayList<>();
+        private int balance;
+        private int balanceDelta;
+
+        private FoldedTrades(Integer customerId, int balance, Map<Ticker, Integer> quantities) {
+            this.customerId = customerId;
+            this.balance = balance;
+            this.quantities.putAll(quantities);
+        }
+
+        private void apply(PendingTrade trade) {
+            var request = trade.request();
+            var quantity = this.quantities.getOrDefault(request.ticker(), 0);
+            var totalPrice = request.totalPrice();
+            switch (request.action()) {
+                case BUY -> {
+                    if (this.balance < totalPrice) {
+                        this.completions.add(() -> trade.sink().tryEmitError(new InsufficientBalanceException(this.customerId)));
+                        return;
+                    }
+                    this.balance -= totalPrice;
+                    this.balanceDelta -= totalPrice;
+                    this.quantities.put(request.ticker(), quantity + request.quantity());
+                    this.quantityDeltas.merge(request.ticker(), request.quantity(), Integer::sum);
+                }
+                case SELL -> {
+                    if (quantity < request.quantity()) {
+                        this.completions.add(() -> trade.sink().tryEmitError(new InsufficientSharesException(this.customerId)));
+                        return;
+                    }
+                    this.balance += totalPrice;
+                    this.balanceDelta += totalPrice;
+                    this.quantities.put(request.ticker(), quantity - request.quantity());
+                    this.quantityDeltas.merge(request.ticker(), -request.quantity(), Integer::sum);
+                }
+            }
+            var response = EntityDtoMapper.toStockTradeResponse(request, this.customerId, this.balance);
+            this.completions.add(() -> trade.sink().tryEmitValue(response));
+        }
+
+        // invoked only after the writes are committed
+        private void complete() {
+            this.completions.forEach(Runnable::run);
+        }
+
+    }
+
+    private class Lane {
+
+        private final Queue<PendingTrade> queue = Queues.<PendingTrade>unboundedMultiproducer().get();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        private void submit(PendingTrade trade) {
+            this.queue.offer(trade);
+            this.drain();
+        }
+
+        private void drain() {
+            if (!this.running.compareAndSet(false, true)) {
+                return; // the running batch picks it up when it is done
+            }
+            var batch = new ArrayList<PendingTrade>();
+            PendingTrade trade;
+            while (batch.size() < maxBatchSize && (trade = this.queue.poll()) != null) {
+                batch.add(trade);
+            }
+            if (batch.isEmpty()) {
+                this.running.set(false);
+                if (!this.queue.isEmpty()) {
+                    this.drain();
+                }
+                return;
+            }
+            log.debug("executing {} trades", batch.size());
+            execute(batch).doFinally(s -> {
+                              this.running.set(false);
+                              this.drain();
+                          })
+                          .subscribe();
+        }
+
+    }
+
+}
@@ -8,6 +8,7 @@ import com.vinsguru.customerportfolio.exceptions.ApplicationExceptions;
 import com.vinsguru.customerportfolio.mapper.EntityDtoMapper;
 import com.vinsguru.customerportfolio.repository.CustomerRepository;
 import com.vinsguru.customerportfolio.repository.PortfolioItemRepository;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 import reactor.core.publisher.Mono;
@@ -17,14 +18,24 @@ public class TradeService {
 
     private final CustomerRepository customerRepository;
     private final PortfolioItemRepository portfolioItemRepository;
+    private final boolean atomicUpdates;
 
-    public TradeService(CustomerRepository customerRepository, PortfolioItemRepository portfolioItemRepository) {
+    public TradeService(CustomerRepository customerRepository,
+                        PortfolioItemRepository portfolioItemRepository,
+                        @Value("${trade.atomic-updates.enabled:true}") boolean atomicUpdates) {
         this.customerRepository = customerRepository;
         this.portfolioItemRepository = portfolioItemRepository;
+        this.atomicUpdates = atomicUpdates;
     }
 
     @Transactional
     public Mono<StockTradeResponse> trade(Integer customerId, StockTradeRequest request) {
+        if (this.atomicUpdates) {
+            return switch (request.action()) {
+                case BUY -> this.atomicBuy(customerId, request);
+                case SELL -> this.atomicSell(customerId, request);
+            };
+        }
         return switch (request.action()) {
             case BUY -> this.buyStock(customerId, request);
             case SELL -> this.sellStock(customerId, request);
@@ -71,8 +82,34 @@ public class TradeService {
 
     private Mono<StockTradeResponse> saveAndBuildResponse(Customer customer, PortfolioItem portfolioItem, StockTradeRequest request) {
         var response = EntityDtoMapper.toStockTradeResponse(request, customer.getId(), customer.getBalance());
-        return Mono.zip(this.customerRepository.save(customer), this.portfolioItemRepository.save(portfolioItem))
+        var portfolioItemUpsert = this.portfolioItemRepository.upsert(portfolioItem.getCustomerId(), portfolioItem.getTicker(), portfolioItem.getQuantity());
+        return Mono.zip(this.customerRepository.save(customer), portfolioItemUpsert)
                    .thenReturn(response);
     }
 
+    /*
+        Atomic mode: the balance / quantity checks are part of the update statements.
+        A trade is 2 statements and concurrent trades for the same customer can not overwrite each other.
+     */
+    private Mono<StockTradeResponse> atomicBuy(Integer customerId, StockTradeRequest request) {
+        return this.customerRepository.withdraw(customerId, request.totalPrice())
+                                      .switchIfEmpty(this.rejectTrade(customerId, ApplicationExceptions.insufficientBalance(customerId)))
+                                      .flatMap(balance -> this.portfolioItemRepository.addShares(customerId, request.ticker(), request.quantity())
+                                                                                      .thenReturn(EntityDtoMapper.toStockTradeResponse(request, customerId, balance)));
+    }
+
+    private Mono<StockTradeResponse> atomicSell(Integer customerId, StockTradeRequest request) {
+        return this.portfolioItemRepository.removeShares(customerId, request.ticker(), request.quantity())
+                                           .filter(Boolean::booleanValue)
+                                           .switchIfEmpty(this.rejectTrade(customerId, ApplicationExceptions.insufficientShares(customerId)))
+                                           .then(this.customerRepository.deposit(customerId, request.totalPrice()))
+                                           .map(balance -> EntityDtoMapper.toStockTradeResponse(request, customerId, balance));
+    }
+
+    // the update did not match any row. it is either an unknown customer or the given rejection
+    private <T> Mono<T> rejectTrade(Integer customerId, Mono<T> rejection) {
+        return this.customerRepository.existsById(customerId)
+                                      .flatMap(exists -> exists ? rejection : ApplicationExceptions.customerNotFound(customerId));
+    }
+
 }
@@ -1,5 +1,6 @@
-DROP TABLE IF EXISTS customer;
+DROP TABLE IF EXISTS trade_ledger;
 DROP TABLE IF EXISTS portfolio_item;
+DROP TABLE IF EXISTS customer;
 
 CREATE TABLE customer (
     id int AUTO_INCREMENT primary key,
@@ -15,6 +16,26 @@ CREATE TABLE portfolio_item (
     foreign key (customer_id) references customer(id)
 );
 
+-- a customer holds a ticker at most once. it also serves findAllByCustomerId / findByCustomerIdAndTicker
+CREATE UNIQUE INDEX portfolio_item_customer_ticker ON portfolio_item(customer_id, ticker);
+
+-- append only. 1 row per executed trade
+CREATE TABLE trade_ledger (
+    id bigint AUTO_INCREMENT primary key,
+    customer_id int,
+    ticker VARCHAR(10),
+    price int,
+    quantity int,
+    action VARCHAR(4),
+    total_price int,
+    balance int,
+    created_at TIMESTAMP,
+    foreign key (customer_id) references customer(id)
+);
+
+-- keyset pagination: WHERE customer_id = ? AND id > ? ORDER BY id
+CREATE INDEX trade_ledger_customer_id ON trade_ledger(customer_id, id);
+
 insert into customer(name, balance)
     values
         ('Sam', 10000),
@@ -0,0 +1,50 @@
+package com.vinsguru.customerportfolio.tests;
+
+import com.vinsguru.customerportfolio.domain.Ticker;
+import com.vinsguru.customerportfolio.domain.TradeAction;
+import com.vinsguru.customerportfolio.dto.StockTradeRequest;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+@SpringBootTest(properties = {
+        "customer.cache.enabled=false",
+        "spring.r2dbc.generate-unique-name=true"
+})
+@AutoConfigureWebTestClient
+class CustomerCacheDisabledTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Test
+    public void everyReadGoesToTheDatabase() {
+        getCustomer(1, 10000);
+        this.client.post()
+                   .uri("/customers/{customerId}/trade", 1)
+                   .bodyValue(new StockTradeRequest(Ticker.GOOGLE, 100, 1, TradeAction.BUY))
+                   .exchange()
+                   .expectStatus().isOk();
+        getCustomer(1, 9900);
+
+        // the cache is never consulted
+        Assertions.assertEquals(0, this.meterRegistry.get("cache.gets").functionCounters().stream().mapToDouble(c -> c.count()).sum());
+    }
+
+    private void getCustomer(Integer customerId, int expectedBalance) {
+        this.client.get()
+                   .uri("/customers/{customerId}", customerId)
+                   .exchange()
+                   .expectStatus().isOk()
+                   .expectBody()
+                   .jsonPath("$.balance").isEqualTo(expectedBalance);
+    }
+
+}
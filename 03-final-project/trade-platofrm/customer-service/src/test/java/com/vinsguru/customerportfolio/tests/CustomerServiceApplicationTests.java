@@ -2,7 +2,15 @@ package com.vinsguru.customerportfolio.tests;
 
 import com.vinsguru.customerportfolio.domain.Ticker;
 import com.vinsguru.customerportfolio.domain.TradeAction;
+import com.vinsguru.customerportfolio.dto.CustomerInformation;
+import com.vinsguru.customerportfolio.dto.CustomerStockTradeRequest;
+import com.vinsguru.customerportfolio.dto.CustomerStockTradeResponse;
 import com.vinsguru.customerportfolio.dto.StockTradeRequest;
+import com.vinsguru.customerportfolio.dto.StockTradeResponse;
+import com.vinsguru.customerportfolio.dto.TradeLedgerEntry;
+import com.vinsguru.customerportfolio.service.CustomerInformationCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -10,9 +18,18 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
 
+import java.util.Arrays;
+import java.util.List;
 import java.util.Objects;
+import java.util.Set;
+import java.util.stream.IntStream;
 
 @SpringBootTest
 @AutoConfigureWebTestClient
@@ -23,6 +40,12 @@ class CustomerServiceApplicationTests {
     @Autowired
     private WebTestClient client;
 
+    @Autowired
+    private CustomerInformationCache customerInformationCache;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
     @Test
     public void customerInformation() {
         getCustomer(1, HttpStatus.OK)
@@ -68,6 +91,22 @@ class CustomerServiceApplicationTests {
                 .jsonPath("$.holdings[0].quantity").isEqualTo(0);
     }
 
+    @Test
+    public void smileWireFormat() throws Exception {
+        var smile = MediaType.parseMediaType("application/x-jackson-smile");
+        var body = this.client.get()
+                              .uri("/customers/{customerId}", 1)
+                              .accept(smile)
+                              .exchange()
+                              .expectStatus().isOk()
+                              .expectHeader().contentType(smile)
+                              .expectBody(byte[].class)
+                              .returnResult()
+                              .getResponseBody();
+        var customer = Jackson2ObjectMapperBuilder.smile().build().readValue(body, CustomerInformation.class);
+        Assertions.assertEquals("Sam", customer.name());
+    }
+
     @Test
     public void customerNotFound() {
         getCustomer(10, HttpStatus.NOT_FOUND)
@@ -78,6 +117,220 @@ class CustomerServiceApplicationTests {
                 .jsonPath("$.detail").isEqualTo("Customer [id=10] is not found");
     }
 
+    @Test
+    public void customerInformationBatch() {
+        var names = this.client.post()
+                               .uri("/customers/batch")
+                               .accept(MediaType.APPLICATION_NDJSON)
+                               .bodyValue(List.of(1, 3, 10, 1))
+                               .exchange()
+                               .expectStatus().isOk()
+                               .returnResult(CustomerInformation.class)
+                               .getResponseBody()
+                               .doOnNext(c -> log.info("{}", c))
+                               .map(CustomerInformation::name)
+                               .collectList()
+                               .block();
+        // unknown customers are skipped, duplicates are removed
+        Assertions.assertEquals(Set.of("Sam", "John"), Set.copyOf(names));
+        Assertions.assertEquals(2, names.size());
+    }
+
+    @Test
+    public void customerInformationEmptyBatch() {
+        this.client.post()
+                   .uri("/customers/batch")
+                   .accept(MediaType.APPLICATION_NDJSON)
+                   .bodyValue(List.of())
+                   .exchange()
+                   .expectStatus().isOk()
+                   .returnResult(CustomerInformation.class)
+                   .getResponseBody()
+                   .as(StepVerifier::create)
+                   .verifyComplete();
+    }
+
+    @Test
+    public void customerInformationInvalidBatch() {
+        var invalidBatches = List.of(
+                Arrays.asList(1, null),
+                IntStream.rangeClosed(1, 1001).boxed().toList()
+        );
+        for (var ids : invalidBatches) {
+            this.client.post()
+                       .uri("/customers/batch")
+                       .bodyValue(ids)
+                       .exchange()
+                       .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST)
+                       .expectBody()
+                       .jsonPath("$.detail").isEqualTo("customer ids must not be null and at most 1000 per batch");
+        }
+    }
+
+    @Test
+    public void bulkTrades() {
+        // customer 3 is shared with other tests, so the balances are checked relative to the current one
+        var balance = this.client.get()
+                                 .uri("/customers/{customerId}", 3)
+                                 .exchange()
+                                 .expectStatus().isOk()
+                                 .expectBody(CustomerInformation.class)
+                                 .returnResult()
+                                 .getResponseBody()
+                                 .balance();
+        var requests = Flux.just(
+                new CustomerStockTradeRequest(3, new StockTradeRequest(Ticker.APPLE, 100, 2, TradeAction.BUY)),
+                new CustomerStockTradeRequest(10, new StockTradeRequest(Ticker.APPLE, 100, 2, TradeAction.BUY)),
+                new CustomerStockTradeRequest(3, new StockTradeRequest(Ticker.APPLE, 100, 1, TradeAction.SELL)),
+                new CustomerStockTradeRequest(3, new StockTradeRequest(Ticker.APPLE, 100, 5, TradeAction.SELL))
+        );
+        var responses = this.client.post()
+                                   .uri("/customers/trades")
+                                   .contentType(MediaType.APPLICATION_NDJSON)
+                                   .accept(MediaType.APPLICATION_NDJSON)
+                                   .body(requests, CustomerStockTradeRequest.class)
+                                   .exchange()
+                                   .expectStatus().isOk()
+                                   .returnResult(CustomerStockTradeResponse.class)
+                                   .getResponseBody()
+                                   .doOnNext(r -> log.info("{}", r))
+                                   .collectList()
+                                   .block();
+        Assertions.assertEquals(4, responses.size());
+
+        // trades of a customer are executed in the submitted order
+        var customer3 = responses.stream().filter(r -> r.customerId() == 3).toList();
+        Assertions.assertEquals(balance - 200, customer3.get(0).trade().balance());
+        Assertions.assertEquals(balance - 100, customer3.get(1).trade().balance());
+        Assertions.assertEquals(400, customer3.get(2).problem().getStatus()); // only 1 APPLE left
+
+        var customer10 = responses.stream().filter(r -> r.customerId() == 10).findFirst().orElseThrow();
+        Assertions.assertEquals("Customer [id=10] is not found", customer10.problem().getDetail());
+    }
+
+    @Test
+    public void idempotentTrade() {
+        // the same key is executed only once
+        var buyRequest = new StockTradeRequest(Ticker.AMAZON, 100, 1, TradeAction.BUY);
+        var balances = Flux.range(1, 3)
+                           .map(i -> this.client.post()
+                                                .uri("/customers/{customerId}/trade", 3)
+                                                .header("Idempotency-Key", "trade-1")
+                                                .bodyValue(buyRequest)
+                                                .exchange()
+                                                .expectStatus().isOk()
+                                                .expectBody(StockTradeResponse.class)
+                                                .returnResult()
+                                                .getResponseBody()
+                                                .balance())
+                           .distinct()
+                           .collectList()
+                           .block();
+        Assertions.assertEquals(1, balances.size());
+
+        // a newer price is the same trade. a different quantity is not
+        this.client.post()
+                   .uri("/customers/{customerId}/trade", 3)
+                   .header("Idempotency-Key", "trade-1")
+                   .bodyValue(new StockTradeRequest(Ticker.AMAZON, 105, 1, TradeAction.BUY))
+                   .exchange()
+                   .expectStatus().isOk()
+                   .expectBody()
+                   .jsonPath("$.balance").isEqualTo(balances.getFirst());
+        this.client.post()
+                   .uri("/customers/{customerId}/trade", 3)
+                   .header("Idempotency-Key", "trade-1")
+                   .bodyValue(new StockTradeRequest(Ticker.AMAZON, 100, 2, TradeAction.BUY))
+                   .exchange()
+                   .expectStatus().isEqualTo(HttpStatus.UNPROCESSABLE_ENTITY)
+                   .expectBody()
+                   .jsonPath("$.detail").isEqualTo("Idempotency-Key [trade-1] was already used for a different trade");
+
+        getCustomer(3, HttpStatus.OK)
+                .jsonPath("$.holdings[?(@.ticker == 'AMAZON')].quantity").isEqualTo(1);
+    }
+
+    @Test
+    public void tradeLedger() throws InterruptedException {
+        var buyRequest = new StockTradeRequest(Ticker.MICROSOFT, 10, 3, TradeAction.BUY);
+        var sellRequest = new StockTradeRequest(Ticker.MICROSOFT, 10, 2, TradeAction.SELL);
+        trade(3, buyRequest, HttpStatus.OK);
+        trade(3, sellRequest, HttpStatus.OK);
+
+        // ledger entries are written in the background
+        var entries = List.<TradeLedgerEntry>of();
+        for (int i = 0; i < 50 && entries.stream().noneMatch(e -> e.ticker() == Ticker.MICROSOFT && e.action() == TradeAction.SELL); i++) {
+            Thread.sleep(100);
+            entries = getTrades(3, 0);
+        }
+        var microsoft = entries.stream().filter(e -> e.ticker() == Ticker.MICROSOFT).toList();
+        Assertions.assertEquals(2, microsoft.size());
+        Assertions.assertEquals(TradeAction.BUY, microsoft.get(0).action());
+        Assertions.assertEquals(TradeAction.SELL, microsoft.get(1).action());
+
+        // next page
+        var lastId = entries.get(entries.size() - 1).id();
+        Assertions.assertTrue(getTrades(3, lastId).isEmpty());
+        Assertions.assertTrue(getTrades(10, 0).isEmpty());
+    }
+
+    @Test
+    public void tradeLedgerInvalidPage() {
+        this.client.get()
+                   .uri("/customers/{customerId}/trades?limit={limit}", 3, 0)
+                   .exchange()
+                   .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST)
+                   .expectBody()
+                   .jsonPath("$.detail").isEqualTo("afterId must be >= 0 and limit must be between 1 and 1000");
+    }
+
+    @Test
+    public void customerInformationCache() {
+        // customer 3 is shared with other tests. APPLE is bought and sold back, so the holdings are left as they were
+        var before = getCustomerInformation(3);
+        var hits = cacheGets("hit");
+        var misses = cacheGets("miss");
+
+        // the entry is cached by the previous read
+        Assertions.assertEquals(before, getCustomerInformation(3));
+
+        // a trade updates the cached entry (write-through)
+        trade(3, new StockTradeRequest(Ticker.APPLE, 100, 2, TradeAction.BUY), HttpStatus.OK);
+        var afterBuy = getCustomerInformation(3);
+        Assertions.assertEquals(before.balance() - 200, afterBuy.balance());
+        Assertions.assertEquals(before.holdings().quantity(Ticker.APPLE) + 2, afterBuy.holdings().quantity(Ticker.APPLE));
+
+        // a rejected trade leaves it as it is
+        trade(3, new StockTradeRequest(Ticker.APPLE, 100, 1000, TradeAction.SELL), HttpStatus.BAD_REQUEST);
+        Assertions.assertEquals(afterBuy, getCustomerInformation(3));
+
+        trade(3, new StockTradeRequest(Ticker.APPLE, 100, 2, TradeAction.SELL), HttpStatus.OK);
+        var afterSell = getCustomerInformation(3);
+        Assertions.assertEquals(before.balance(), afterSell.balance());
+        Assertions.assertEquals(before.holdings().quantity(Ticker.APPLE), afterSell.holdings().quantity(Ticker.APPLE));
+
+        // every read after the first one was a hit
+        Assertions.assertEquals(hits + 4, cacheGets("hit"));
+        Assertions.assertEquals(misses, cacheGets("miss"));
+    }
+
+    @Test
+    public void racingTradesDropTheCachedEntry() {
+        getCustomerInformation(1);
+        var misses = cacheGets("miss");
+
+        // 2 overlapping trades of customer 1, the inner one completes first. the outer one can not tell
+        // which change the entry already has, so it drops the entry. nothing is written to the database
+        var response = new StockTradeResponse(1, Ticker.GOOGLE, 100, 1, TradeAction.BUY, 100, 9900);
+        this.customerInformationCache.update(1, this.customerInformationCache.update(1, Mono.just(response)))
+                                     .block();
+
+        // reloaded from the database
+        var customer = getCustomerInformation(1);
+        Assertions.assertEquals(10000, customer.balance());
+        Assertions.assertEquals(misses + 1, cacheGets("miss"));
+    }
+
     @Test
     public void insufficientBalance(){
         var buyRequest = new StockTradeRequest(Ticker.GOOGLE, 100, 101, TradeAction.BUY);
@@ -111,4 +364,31 @@ class CustomerServiceApplicationTests {
                           .consumeWith(e -> log.info("{}", new String(Objects.requireNonNull(e.getResponseBody()))));
     }
 
+    private CustomerInformation getCustomerInformation(Integer customerId) {
+        return this.client.get()
+                          .uri("/customers/{customerId}", customerId)
+                          .exchange()
+                          .expectStatus().isOk()
+                          .expectBody(CustomerInformation.class)
+                          .returnResult()
+                          .getResponseBody();
+    }
+
+    private double cacheGets(String result) {
+        return this.meterRegistry.get("cache.gets")
+                                 .tags("cache", "customer-information", "result", result)
+                                 .functionCounter()
+                                 .count();
+    }
+
+    private List<TradeLedgerEntry> getTrades(Integer customerId, long afterId) {
+        return this.client.get()
+                          .uri("/customers/{customerId}/trades?afterId={afterId}", customerId, afterId)
+                          .exchange()
+                          .expectStatus().isOk()
+                          .expectBodyList(TradeLedgerEntry.class)
+                          .returnResult()
+                          .getResponseBody();
+    }
+
 }
@@ -0,0 +1,71 @@
+package com.vinsguru.customerportfolio.tests;
+
+import com.vinsguru.customerportfolio.domain.Ticker;
+import com.vinsguru.customerportfolio.domain.TradeAction;
+import com.vinsguru.customerportfolio.dto.StockTradeRequest;
+import com.vinsguru.customerportfolio.service.TradeSequencer;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+@SpringBootTest(properties = {
+        "trade.sequencer.enabled=true",
+        "spring.r2dbc.generate-unique-name=true"
+})
+@AutoConfigureWebTestClient
+class TradeSequencerTest {
+
+    @Autowired
+    private WebTestClient client;
+
+    @Autowired
+    private TradeSequencer tradeSequencer;
+
+    @Test
+    public void concurrentTrades() {
+        // 20 concurrent buys for the same customer
+        // flatMap submits all of them at once (regardless of the number of cores), so they are folded into batches
+        var buyRequest = new StockTradeRequest(Ticker.APPLE, 100, 1, TradeAction.BUY);
+        Flux.range(1, 20)
+            .flatMap(i -> this.tradeSequencer.trade(1, buyRequest))
+            .as(StepVerifier::create)
+            .expectNextCount(20)
+            .verifyComplete();
+
+        // no lost updates
+        this.client.get()
+                   .uri("/customers/{customerId}", 1)
+                   .exchange()
+                   .expectStatus().isOk()
+                   .expectBody()
+                   .jsonPath("$.balance").isEqualTo(8000)
+                   .jsonPath("$.holdings[0].ticker").isEqualTo("APPLE")
+                   .jsonPath("$.holdings[0].quantity").isEqualTo(20);
+    }
+
+    @Test
+    public void rejectedTrades() {
+        var sellRequest = new StockTradeRequest(Ticker.AMAZON, 100, 1, TradeAction.SELL);
+        this.client.post()
+                   .uri("/customers/{customerId}/trade", 2)
+                   .bodyValue(sellRequest)
+                   .exchange()
+                   .expectStatus().isEqualTo(HttpStatus.BAD_REQUEST)
+                   .expectBody()
+                   .jsonPath("$.detail").isEqualTo("Customer [id=2] does not have enough shares to complete the transaction");
+
+        this.client.post()
+                   .uri("/customers/{customerId}/trade", 10)
+                   .bodyValue(sellRequest)
+                   .exchange()
+                   .expectStatus().isEqualTo(HttpStatus.NOT_FOUND)
+                   .expectBody()
+                   .jsonPath("$.detail").isEqualTo("Customer [id=10] is not found");
+    }
+
+}
@@ -0,0 +1,13 @@
+package com.vinsguru.loadtest;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+
+@SpringBootApplication
+public class LoadTestApp {
+
+    public static void main(String[] args) {
+        SpringApplication.run(LoadTestApp.class, args);
+    }
+
+}
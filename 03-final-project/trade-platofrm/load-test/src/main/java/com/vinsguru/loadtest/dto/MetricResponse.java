@@ -0,0 +1,13 @@
+package com.vinsguru.loadtest.dto;
+
+import java.util.List;
+
+// actuator /actuator/metrics/{name} response (only what we need)
+public record MetricResponse(String name,
+                             List<Measurement> measurements) {
+
+    public record Measurement(String statistic,
+                              Double value) {
+    }
+
+}
@@ -0,0 +1,8 @@
+package com.vinsguru.loadtest.dto;
+
+import java.time.LocalDateTime;
+
+public record PriceUpdate(Ticker ticker,
+                          Integer price,
+                          LocalDateTime time) {
+}
@@ -0,0 +1,5 @@
+package com.vinsguru.loadtest.dto;
+
+public record StockPriceResponse(Ticker ticker,
+                                 Integer price) {
+}
@@ -0,0 +1,10 @@
+package com.vinsguru.loadtest.dto;
+
+public enum Ticker {
+
+    AMAZON,
+    APPLE,
+    GOOGLE,
+    MICROSOFT;
+
+}
@@ -0,0 +1,8 @@
+package com.vinsguru.loadtest.dto;
+
+public enum TradeAction {
+
+    BUY,
+    SELL;
+
+}
@@ -0,0 +1,6 @@
+package com.vinsguru.loadtest.dto;
+
+public record TradeRequest(Ticker ticker,
+                           TradeAction action,
+                           Integer quantity) {
+}
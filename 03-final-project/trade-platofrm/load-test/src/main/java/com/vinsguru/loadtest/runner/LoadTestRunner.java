@@ -0,0 +1,218 @@
+package com.vinsguru.loadtest.runner;
+
+import com.vinsguru.loadtest.dto.MetricResponse;
+import com.vinsguru.loadtest.dto.PriceUpdate;
+import com.vinsguru.loadtest.dto.Ticker;
+import com.vinsguru.loadtest.dto.TradeAction;
+import com.vinsguru.loadtest.dto.TradeRequest;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.ApplicationContext;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.util.retry.Retry;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.StringJoiner;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+    Open model load test: the trades arrive at a fixed rate, whatever the response times are.
+    The latency of a trade is measured from its scheduled arrival time, so a stalled service is not hidden
+    by the load generator slowing down (coordinated omission).
+    In parallel, price-stream-subscribers SSE clients consume the price stream of the aggregator.
+
+    Reports throughput, response statuses, latency percentiles, price stream lag and the allocation rate of
+    the aggregator / customer service (jvm.gc.memory.allocated) to the log and to load-test.report.
+ */
+@Service
+@ConditionalOnProperty(value = "load.test", havingValue = "true")
+public class LoadTestRunner implements CommandLineRunner {
+
+    private static final Logger log = LoggerFactory.getLogger(LoadTestRunner.class);
+    private static final Ticker[] TICKERS = Ticker.values();
+    private static final TradeAction[] ACTIONS = TradeAction.values();
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99, 0.999};
+
+    private final ApplicationContext context;
+    private final WebClient client;
+    private final String aggregatorUrl;
+    private final String customerServiceUrl;
+    private final int tradesPerSecond;
+    private final Duration duration;
+    private final Duration warmUp;
+    private final int priceStreamSubscribers;
+    private final int customers;
+    private final Path report;
+
+    public LoadTestRunner(ApplicationContext context,
+                          @Value("${load-test.aggregator-url}") String aggregatorUrl,
+                          @Value("${load-test.customer-service-url}") String customerServiceUrl,
+                          @Value("${load-test.trades-per-second}") int tradesPerSecond,
+                          @Value("${load-test.duration}") Duration duration,
+                          @Value("${load-test.warm-up}") Duration warmUp,
+                          @Value("${load-test.price-stream-subscribers}") int priceStreamSubscribers,
+                          @Value("${load-test.customers}") int customers,
+                          @Value("${load-test.report}") Path report) {
+        if (tradesPerSecond < 1 || tradesPerSecond > 1_000_000_000) {
+            throw new IllegalArgumentException("load-test.trades-per-second must be between 1 and 1000000000: " + tradesPerSecond);
+        }
+        this.context = context;
+        this.aggregatorUrl = aggregatorUrl;
+        this.customerServiceUrl = customerServiceUrl;
+        this.tradesPerSecond = tradesPerSecond;
+        this.duration = duration;
+        this.warmUp = warmUp;
+        this.priceStreamSubscribers = priceStreamSubscribers;
+        this.customers = customers;
+        this.report = report;
+        // the load generator should not be the bottleneck
+        var provider = ConnectionProvider.builder("load-test")
+                                         .maxConnections(10_000)
+                                         .pendingAcquireMaxCount(-1)
+                                         .build();
+        this.client = WebClient.builder()
+                               .clientConnector(new ReactorClientHttpConnector(HttpClient.create(provider)))
+                               .build();
+    }
+
+    @Override
+    public void run(String... args) throws Exception {
+        this.waitUntilUp(this.customerServiceUrl);
+        this.waitUntilUp(this.aggregatorUrl);
+
+        log.info("warm up: {}", this.warmUp);
+        this.trades(this.warmUp, newTimer()).block();
+
+        log.info("load test: {} trades / sec, {} price stream subscribers, {}", this.tradesPerSecond, this.priceStreamSubscribers, this.duration);
+        var aggregatorAllocated = this.allocatedBytes(this.aggregatorUrl).block();
+        var customerServiceAllocated = this.allocatedBytes(this.customerServiceUrl).block();
+        var tradeLatency = newTimer();
+        var priceStreamLag = newTimer();
+        var start = System.nanoTime();
+        var result = Mono.zip(this.trades(this.duration, tradeLatency), this.priceStream(this.duration, priceStreamLag)).block();
+        var elapsedSeconds = (System.nanoTime() - start) / 1_000_000_000d;
+        var aggregatorAllocationRate = (this.allocatedBytes(this.aggregatorUrl).block() - aggregatorAllocated) / elapsedSeconds;
+        var customerServiceAllocationRate = (this.allocatedBytes(this.customerServiceUrl).block() - customerServiceAllocated) / elapsedSeconds;
+
+        var lines = new StringJoiner(System.lineSeparator());
+        lines.add("trades / sec (target): " + this.tradesPerSecond);
+        lines.add("trades / sec (completed): %.1f".formatted(tradeLatency.count() / elapsedSeconds));
+        lines.add("trade statuses: " + result.getT1());
+        lines.add("trade latency: " + summary(tradeLatency));
+        lines.add("price updates received: " + result.getT2() + " by " + this.priceStreamSubscribers + " subscribers");
+        lines.add("price stream lag: " + summary(priceStreamLag));
+        lines.add("aggregator allocation rate: %.1f MB / sec".formatted(aggregatorAllocationRate / 1_000_000));
+        lines.add("customer-service allocation rate: %.1f MB / sec".formatted(customerServiceAllocationRate / 1_000_000));
+        log.info("{}{}", System.lineSeparator(), lines);
+        Files.createDirectories(this.report.toAbsolutePath().getParent());
+        Files.writeString(this.report, lines + System.lineSeparator());
+        log.info("report: {}", this.report.toAbsolutePath());
+
+        System.exit(SpringApplication.exit(this.context));
+    }
+
+    // response status (-1 = no response) => count
+    private Mono<Map<Integer, Long>> trades(Duration duration, Timer latency) {
+        var periodNanos = 1_000_000_000L / this.tradesPerSecond;
+        var count = duration.toSeconds() * this.tradesPerSecond;
+        var statuses = new ConcurrentHashMap<Integer, LongAdder>();
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return Flux.interval(Duration.ofNanos(periodNanos))
+                       .take(count)
+                       .flatMap(i -> this.trade(start + (i + 1) * periodNanos, latency), Integer.MAX_VALUE) // tick i fires after i + 1 periods
+                       .doOnNext(status -> statuses.computeIfAbsent(status, k -> new LongAdder()).increment())
+                       .then(Mono.fromSupplier(() -> {
+                           var map = new TreeMap<Integer, Long>();
+                           statuses.forEach((status, adder) -> map.put(status, adder.sum()));
+                           return map;
+                       }));
+        });
+    }
+
+    // random customer (generated by the datagen profile of the customer service), 1 share
+    private Mono<Integer> trade(long scheduledAt, Timer latency) {
+        var random = ThreadLocalRandom.current();
+        var customerId = 4 + random.nextInt(this.customers);
+        var request = new TradeRequest(TICKERS[random.nextInt(TICKERS.length)], ACTIONS[random.nextInt(ACTIONS.length)], 1);
+        return this.client.post()
+                          .uri(this.aggregatorUrl + "/customers/{customerId}/trade", customerId)
+                          .bodyValue(request)
+                          .exchangeToMono(response -> response.releaseBody().thenReturn(response.statusCode().value()))
+                          .onErrorReturn(-1)
+                          .doOnNext(status -> latency.record(System.nanoTime() - scheduledAt, TimeUnit.NANOSECONDS));
+    }
+
+    // the number of price updates received by all the subscribers
+    private Mono<Long> priceStream(Duration duration, Timer lag) {
+        return Flux.range(0, this.priceStreamSubscribers)
+                   .flatMap(i -> this.client.get()
+                                            .uri(this.aggregatorUrl + "/stock/price-stream")
+                                            .accept(MediaType.TEXT_EVENT_STREAM)
+                                            .retrieve()
+                                            .bodyToFlux(PriceUpdate.class)
+                                            .take(duration)
+                                            .doOnNext(p -> lag.record(Duration.between(p.time(), LocalDateTime.now())))
+                                            .count()
+                                            .onErrorReturn(0L), Integer.MAX_VALUE)
+                   .reduce(0L, Long::sum);
+    }
+
+    private Mono<Double> allocatedBytes(String baseUrl) {
+        return this.client.get()
+                          .uri(baseUrl + "/actuator/metrics/jvm.gc.memory.allocated")
+                          .retrieve()
+                          .bodyToMono(MetricResponse.class)
+                          .map(r -> r.measurements().getFirst().value())
+                          .onErrorReturn(Double.NaN);
+    }
+
+    private void waitUntilUp(String baseUrl) {
+        log.info("waiting for {}", baseUrl);
+        this.client.get()
+                   .uri(baseUrl + "/actuator/health")
+                   .retrieve()
+                   .toBodilessEntity()
+                   .retryWhen(Retry.fixedDelay(120, Duration.ofSeconds(1)))
+                   .block();
+    }
+
+    private static Timer newTimer() {
+        return Timer.builder("latency")
+                    .publishPercentiles(PERCENTILES)
+                    .distributionStatisticExpiry(Duration.ofHours(1))
+                    .register(new SimpleMeterRegistry());
+    }
+
+    private static String summary(Timer timer) {
+        var joiner = new StringJoiner(", ");
+        joiner.add("count=" + timer.count());
+        for (var percentile : timer.takeSnapshot().percentileValues()) {
+            joiner.add("p%.1f=%.1f ms".formatted(percentile.percentile() * 100, percentile.value(TimeUnit.MILLISECONDS)));
+        }
+        joiner.add("max=%.1f ms".formatted(timer.max(TimeUnit.MILLISECONDS)));
+        return joiner.toString();
+    }
+
+}
@@ -0,0 +1,59 @@
+package com.vinsguru.loadtest.stub;
+
+import com.vinsguru.loadtest.dto.PriceUpdate;
+import com.vinsguru.loadtest.dto.StockPriceResponse;
+import com.vinsguru.loadtest.dto.Ticker;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/*
+    Stand-in for the external stock service (same api). The prices are a random walk between 50 and 150.
+    stub.price-updates-per-second controls the rate of the price stream.
+ */
+@RestController
+@RequestMapping("stock")
+public class StubStockController {
+
+    private static final Ticker[] TICKERS = Ticker.values();
+
+    private final AtomicIntegerArray prices = new AtomicIntegerArray(TICKERS.length);
+    private final Duration period;
+
+    public StubStockController(@Value("${stub.price-updates-per-second:10}") int priceUpdatesPerSecond) {
+        this.period = Duration.ofNanos(1_000_000_000L / priceUpdatesPerSecond);
+        for (int i = 0; i < TICKERS.length; i++) {
+            this.prices.set(i, 100);
+        }
+    }
+
+    @GetMapping("/{ticker}")
+    public Mono<StockPriceResponse> getStockPrice(@PathVariable Ticker ticker) {
+        return Mono.fromSupplier(() -> new StockPriceResponse(ticker, this.prices.get(ticker.ordinal())));
+    }
+
+    @GetMapping(value = "/price-stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<PriceUpdate> priceUpdatesStream() {
+        return Flux.interval(this.period)
+                   .onBackpressureDrop()
+                   .map(i -> this.nextPriceUpdate());
+    }
+
+    private PriceUpdate nextPriceUpdate() {
+        var random = ThreadLocalRandom.current();
+        var ticker = TICKERS[random.nextInt(TICKERS.length)];
+        var price = this.prices.updateAndGet(ticker.ordinal(), p -> Math.clamp(p + random.nextInt(-2, 3), 50, 150));
+        return new PriceUpdate(ticker, price, LocalDateTime.now());
+    }
+
+}